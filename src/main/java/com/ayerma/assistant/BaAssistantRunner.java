@@ -1,16 +1,21 @@
 package com.ayerma.assistant;
 
 import com.ayerma.assistant.client.BaAssistantClient;
-import com.ayerma.assistant.client.cli.GitHubCopilotCliClient;
-import com.ayerma.assistant.client.models.GitHubModelsClient;
+import com.ayerma.assistant.client.BaAssistantClients;
+import com.ayerma.assistant.client.routing.ModelTask;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class BaAssistantRunner {
+    // Everything BaPromptBuilder.buildUserPromptFromJiraIssue reads.
+    private static final IssueQuery PROMPT_FIELDS = IssueQuery.fields("summary", "description");
+
     public static void main(String[] args) throws Exception {
         System.out.println("[INFO] Starting BA Assistant Runner...");
 
@@ -21,7 +26,7 @@ public final class BaAssistantRunner {
         String jiraEmail = Env.required("JIRA_EMAIL");
         String jiraApiToken = Env.required("JIRA_API_TOKEN");
 
-        HttpJson jiraHttp = new HttpJson();
+        HttpJson jiraHttp = HttpJson.shared();
         JiraClient jiraClient = new JiraClient(jiraHttp, jiraBaseUrl, jiraEmail, jiraApiToken);
 
         String outputPath = Env.optional("BA_OUTPUT_PATH", "ba-output.json");
@@ -63,6 +68,8 @@ public final class BaAssistantRunner {
 
         System.out.println("[INFO] Loading instructions from: " + instructionsPath);
         String systemPrompt = loadSystemPrompt(instructionsPath, technicalReqPath);
+        int promptBudget = PromptBudgeter.availableTokens(useModelsApi ? model : Env.optional("CLI_MODEL", null),
+                systemPrompt);
 
         // Check if summary and description are provided to skip Jira API call
         String providedSummary = Env.optional("JIRA_ISSUE_SUMMARY", null);
@@ -73,13 +80,14 @@ public final class BaAssistantRunner {
         if (providedSummary != null && !providedSummary.isBlank()) {
             // Build prompt from provided inputs (skip Jira API call)
             System.out.println("[INFO] Using provided summary and description (skipping Jira API call)");
-            userPrompt = BaPromptBuilder.buildUserPrompt(issueKey, providedSummary, providedDescription);
+            userPrompt = BaPromptBuilder.buildUserPrompt(issueKey, providedSummary, providedDescription,
+                    promptBudget);
         } else {
             // Fetch from Jira (existing behavior)
             System.out.println("[INFO] Fetching issue details from Jira API...");
-            issue = jiraClient.getIssue(issueKey);
+            issue = jiraClient.getIssue(issueKey, PROMPT_FIELDS);
             System.out.println("[INFO] Successfully fetched issue from Jira");
-            userPrompt = BaPromptBuilder.buildUserPromptFromJiraIssue(issue);
+            userPrompt = BaPromptBuilder.buildUserPromptFromJiraIssue(issue, promptBudget);
         }
 
         // Always write the prompt to file first
@@ -106,10 +114,10 @@ public final class BaAssistantRunner {
             if (modelsApiKey == null || modelsApiKey.isBlank()) {
                 throw new IllegalStateException("MODELS_TOKEN is required when USE_MODELS_API=true");
             }
-            HttpJson modelsHttp = new HttpJson();
-            client = new GitHubModelsClient(modelsHttp, modelsEndpoint, modelsApiKey, model);
+            HttpJson modelsHttp = HttpJson.shared();
+            client = BaAssistantClients.models(modelsHttp, modelsEndpoint, modelsApiKey, model, ModelTask.PLAN);
         } else {
-            client = new GitHubCopilotCliClient(cliCommand);
+            client = BaAssistantClients.copilotCli(cliCommand, ModelTask.PLAN);
         }
 
         String assistantOutput = client.runBaAssistant(systemPrompt, userPrompt);
@@ -150,8 +158,8 @@ public final class BaAssistantRunner {
 
         System.out.println("[INFO] Tasks found: " + tasks.size());
 
-        int createdCount = 0;
-        java.util.Map<String, String> taskKeyById = new java.util.HashMap<>();
+        // One bulk call per level: all tasks, then the question sub-tasks of every created task.
+        List<IssueSpec> taskSpecs = new ArrayList<>();
         for (JsonNode task : tasks) {
             String title = textAt(task, "/title");
             String id = textAt(task, "/id");
@@ -162,11 +170,27 @@ public final class BaAssistantRunner {
             String issueTypeName = resolveIssueType(ticketType, storyIssueType, taskIssueType);
             System.out.println("[DEBUG] Creating issue for task " + (id != null ? id : "(no-id)")
                     + " with type=" + issueTypeName + ", parent=" + issueKey + ", summary=" + summary);
-            String createdKey = jiraClient.createIssueWithParent(projectKey, issueTypeName, issueKey, summary,
-                    description);
+            taskSpecs.add(new IssueSpec(projectKey, issueTypeName, summary, description)
+                    .withParent(issueKey)
+                    .withLabels("DEV-AI"));
+        }
+        BulkCreateResult createdTasks = jiraClient.createIssuesBulk(taskSpecs);
+
+        int createdCount = 0;
+        java.util.Map<String, String> taskKeyById = new java.util.HashMap<>();
+        List<IssueSpec> questionSpecs = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            JsonNode task = tasks.get(i);
+            String summary = taskSpecs.get(i).summary();
+            if (!createdTasks.isCreated(i)) {
+                System.out.println("[WARN] Failed to create Jira issue (" + summary + "): " + createdTasks.error(i));
+                continue;
+            }
+            String createdKey = createdTasks.key(i);
             createdCount++;
             System.out.println("[SUCCESS] Created Jira issue: " + createdKey + " (" + summary + ")");
 
+            String id = textAt(task, "/id");
             if (id != null && !id.isBlank()) {
                 taskKeyById.put(id, createdKey);
             }
@@ -184,14 +208,33 @@ public final class BaAssistantRunner {
 
                     System.out.println("[DEBUG] Creating question subtask for parent " + createdKey
                             + " with type=" + questionIssueType + ", summary=" + subSummary);
-                    String questionKey = jiraClient.createSubtask(projectKey, questionIssueType, createdKey,
-                            subSummary, subDescription);
-                    System.out.println("[SUCCESS] Created question subtask: " + questionKey + " (" + subSummary + ")");
+                    questionSpecs.add(new IssueSpec(projectKey, questionIssueType, subSummary, subDescription)
+                            .withParent(createdKey));
                 }
             }
         }
 
+        BulkCreateResult createdQuestions = questionSpecs.isEmpty()
+                ? null
+                : jiraClient.createIssuesBulk(questionSpecs);
+        for (int i = 0; i < questionSpecs.size(); i++) {
+            String subSummary = questionSpecs.get(i).summary();
+            if (createdQuestions.isCreated(i)) {
+                System.out.println("[SUCCESS] Created question subtask: " + createdQuestions.key(i) + " ("
+                        + subSummary + ")");
+            } else {
+                System.out.println("[WARN] Failed to create question subtask (" + subSummary + "): "
+                        + createdQuestions.error(i));
+            }
+        }
+
         System.out.println("[SUCCESS] Created " + createdCount + " Jira linked issues");
+
+        // Everything that could be created is; still fail the run so missing tickets get noticed.
+        createdTasks.throwIfAnyFailed();
+        if (createdQuestions != null) {
+            createdQuestions.throwIfAnyFailed();
+        }
     }
 
     private static String loadSystemPrompt(String instructionsPath, String technicalReqPath) throws IOException {
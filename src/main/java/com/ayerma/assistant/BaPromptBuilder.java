@@ -7,37 +7,40 @@ public final class BaPromptBuilder {
     }
 
     public static String buildUserPrompt(String issueKey, String summary, String description) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Jira issue key: ").append(issueKey != null ? issueKey : "(unknown)").append("\n");
-        sb.append("Title: ").append(summary != null && !summary.isBlank() ? summary : "(unknown)").append("\n\n");
-
-        if (description != null && !description.isBlank()) {
-            sb.append("Description:\n").append(description).append("\n\n");
-        }
-
-        sb.append("Task: Convert this Jira ticket into an implementation plan following the BA role instructions. ")
-                .append("Return ONLY the STRICT JSON as specified (no markdown).\n");
+        return buildUserPrompt(issueKey, summary, description, Integer.MAX_VALUE);
+    }
 
-        return sb.toString();
+    /**
+     * Same prompt, with the description trimmed if the whole prompt would
+     * exceed {@code maxTokens} (see {@link PromptBudgeter}).
+     */
+    public static String buildUserPrompt(String issueKey, String summary, String description, int maxTokens) {
+        return budgeted(issueKey, summary, description).render(maxTokens);
     }
 
     public static String buildUserPromptFromJiraIssue(JsonNode issue) {
+        return buildUserPromptFromJiraIssue(issue, Integer.MAX_VALUE);
+    }
+
+    public static String buildUserPromptFromJiraIssue(JsonNode issue, int maxTokens) {
         String key = textAt(issue, "/key");
         String summary = textAt(issue, "/fields/summary");
         String description = extractDescription(issue.at("/fields/description"));
+        return budgeted(key, summary, description).render(maxTokens);
+    }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("Jira issue key: ").append(orUnknown(key)).append("\n");
-        sb.append("Title: ").append(orUnknown(summary)).append("\n\n");
+    private static PromptBudgeter budgeted(String issueKey, String summary, String description) {
+        PromptBudgeter prompt = new PromptBudgeter();
+        prompt.add("Jira issue key: " + orUnknown(issueKey) + "\n"
+                + "Title: " + orUnknown(summary) + "\n\n");
 
         if (description != null && !description.isBlank()) {
-            sb.append("Description:\n").append(description).append("\n\n");
+            prompt.add("description", PromptBudgeter.IMPORTANT, "Description:\n" + description + "\n\n");
         }
 
-        sb.append("Task: Convert this Jira ticket into an implementation plan following the BA role instructions. ")
-                .append("Return ONLY the STRICT JSON as specified (no markdown).\n");
-
-        return sb.toString();
+        prompt.add("Task: Convert this Jira ticket into an implementation plan following the BA role instructions. "
+                + "Return ONLY the STRICT JSON as specified (no markdown).\n");
+        return prompt;
     }
 
     private static String extractDescription(JsonNode descriptionNode) {
@@ -0,0 +1,67 @@
+package com.ayerma.assistant;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of {@link JiraClient#createIssuesBulk(List)}, index-aligned with the
+ * specs that were submitted. Jira creates what it can and reports the rest,
+ * so a bulk call can partly succeed.
+ */
+public final class BulkCreateResult {
+    private final List<String> keys;
+    private final List<String> errors;
+
+    BulkCreateResult(List<String> keys, List<String> errors) {
+        this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    /** @return the created issue key, or null when this spec failed */
+    public String key(int index) {
+        return keys.get(index);
+    }
+
+    /** @return Jira's error for this spec, or null when it was created */
+    public String error(int index) {
+        return errors.get(index);
+    }
+
+    public boolean isCreated(int index) {
+        return keys.get(index) != null;
+    }
+
+    public int failureCount() {
+        int failures = 0;
+        for (String key : keys) {
+            if (key == null) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Fails with every per-issue error when anything was not created, for
+     * callers that treat a partial result as an error.
+     */
+    public void throwIfAnyFailed() throws IOException {
+        int failures = failureCount();
+        if (failures == 0) {
+            return;
+        }
+        StringBuilder message = new StringBuilder("Failed to create " + failures + " of " + size() + " Jira issues:");
+        for (int i = 0; i < size(); i++) {
+            if (!isCreated(i)) {
+                message.append("\n  #").append(i).append(": ").append(errors.get(i));
+            }
+        }
+        throw new IOException(message.toString());
+    }
+}
@@ -0,0 +1,103 @@
+package com.ayerma.assistant;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-host circuit breaker used by {@link HttpJson}.
+ *
+ * After a run of consecutive transport failures or 5xx responses the circuit
+ * opens and calls to that host fail immediately. Once the open period has
+ * passed a single probe request is let through; its outcome closes the
+ * circuit again or re-opens it. Every request let through must report back
+ * through exactly one of the {@code on...} methods.
+ */
+public final class CircuitBreaker {
+    private static final Map<String, CircuitBreaker> BY_HOST = new ConcurrentHashMap<>();
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String host;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    CircuitBreaker(String host, int failureThreshold, long openMillis) {
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+    }
+
+    public static CircuitBreaker forHost(String host) {
+        return BY_HOST.computeIfAbsent(host == null ? "" : host, h -> new CircuitBreaker(h,
+                Integer.parseInt(Env.optional("HTTP_CIRCUIT_FAILURE_THRESHOLD", "5")),
+                Long.parseLong(Env.optional("HTTP_CIRCUIT_OPEN_SECONDS", "30")) * 1000L));
+    }
+
+    /**
+     * @return true if a request may be sent now
+     */
+    public synchronized boolean tryAcquire() {
+        if (failureThreshold <= 0) {
+            return true;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                System.out.println("[INFO] Circuit for " + host + " half-open - sending probe request");
+                state = State.HALF_OPEN;
+                return true;
+            case HALF_OPEN:
+            default:
+                // Only the probe is allowed through until it reports back.
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            System.out.println("[INFO] Circuit for " + host + " closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (failureThreshold > 0 && (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold)) {
+            if (state != State.OPEN) {
+                System.out.println("[WARN] Circuit for " + host + " opened after " + consecutiveFailures
+                        + " consecutive failures");
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * A request let through by {@link #tryAcquire()} will report neither
+     * outcome: it was never sent, or we aborted it ourselves. If it was the
+     * probe, the circuit goes back to open with its open period served, so
+     * the next request becomes the probe instead of the circuit staying
+     * half-open for good.
+     */
+    public synchronized void onAbandoned() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedAt = System.nanoTime() - openNanos;
+        }
+    }
+
+    public String host() {
+        return host;
+    }
+}
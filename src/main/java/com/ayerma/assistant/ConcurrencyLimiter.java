@@ -0,0 +1,198 @@
+package com.ayerma.assistant;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adaptive cap on concurrent requests to one host, applied by
+ * {@link HttpJson} just before a request goes out. Requests over the limit
+ * wait in arrival order.
+ *
+ * The limit follows AIMD: a successful response at normal latency raises it
+ * by 1/limit, about one per round of requests, as long as the limit is
+ * actually being used. A 429 or 503 halves it; a response (or timeout)
+ * slower than the latency factor times the running average
+ * latency cuts it by 10%. Only requests sent after the last cut can cut it
+ * again, so one burst of overload signals counts once.
+ *
+ * Off unless a client opts in for its host with
+ * {@code <PREFIX>_CONCURRENCY_ADAPTIVE} (see {@link #configureFromEnv}).
+ * Latency is measured up to the response headers, so clients whose
+ * responses arrive only once the work is done (non-streamed model
+ * completions) turn latency and timeout cuts off and react to 429/503 only.
+ */
+public final class ConcurrencyLimiter {
+    private static final Map<String, ConcurrencyLimiter> BY_HOST = new ConcurrentHashMap<>();
+
+    private static final double MIN_LIMIT = 1;
+    private static final double OVERLOAD_BACKOFF = 0.5;
+    private static final double LATENCY_BACKOFF = 0.9;
+    // Latency spikes are only judged once the average has settled.
+    private static final int MIN_LATENCY_SAMPLES = 10;
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final String host;
+    private final double initialLimit;
+    private final double maxLimit;
+    private final double latencyFactor;
+
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double averageLatencyNanos;
+    private long latencySamples;
+    private long lastDecreaseAt;
+
+    ConcurrencyLimiter(String host, double initialLimit, double maxLimit, double latencyFactor) {
+        this.host = host;
+        this.initialLimit = initialLimit;
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        this.latencyFactor = latencyFactor;
+        this.limit = Math.max(MIN_LIMIT, Math.min(initialLimit, this.maxLimit));
+        this.lastDecreaseAt = System.nanoTime();
+    }
+
+    /**
+     * Installs a limiter for a host. A latency factor of 0 disables the
+     * latency and timeout cuts.
+     */
+    public static void configure(String host, double initialLimit, double maxLimit, double latencyFactor) {
+        if (host == null) {
+            return;
+        }
+        ConcurrencyLimiter existing = BY_HOST.get(host);
+        if (existing != null && existing.initialLimit == initialLimit
+                && existing.maxLimit == Math.max(MIN_LIMIT, maxLimit) && existing.latencyFactor == latencyFactor) {
+            // Same settings from another client instance: keep the learned limit.
+            return;
+        }
+        BY_HOST.put(host, new ConcurrencyLimiter(host, initialLimit, maxLimit, latencyFactor));
+        System.out.println("[DEBUG] Adaptive concurrency for " + host + " => starting at " + (int) initialLimit
+                + ", max " + (int) maxLimit + (latencyFactor > 0 ? ", latency factor " + latencyFactor
+                        : ", 429/503 only"));
+    }
+
+    /**
+     * Installs a limiter for the host when {@code <PREFIX>_CONCURRENCY_ADAPTIVE}
+     * is true (default false), from {@code <PREFIX>_CONCURRENCY_INITIAL}
+     * (default 8), {@code <PREFIX>_CONCURRENCY_MAX} (default 64) and
+     * {@code <PREFIX>_CONCURRENCY_LATENCY_FACTOR} (default 3).
+     *
+     * @param judgeLatency false when response headers only arrive once the
+     *                     work is done, so their latency says nothing about load
+     */
+    public static void configureFromEnv(String host, String prefix, boolean judgeLatency) {
+        if (!Env.optional(prefix + "_CONCURRENCY_ADAPTIVE", "false").equalsIgnoreCase("true")) {
+            return;
+        }
+        configure(host,
+                Double.parseDouble(Env.optional(prefix + "_CONCURRENCY_INITIAL", "8")),
+                Double.parseDouble(Env.optional(prefix + "_CONCURRENCY_MAX", "64")),
+                judgeLatency ? Double.parseDouble(Env.optional(prefix + "_CONCURRENCY_LATENCY_FACTOR", "3")) : 0);
+    }
+
+    /**
+     * @return the limiter for the host, or null when no client enabled one
+     */
+    public static ConcurrencyLimiter forHost(String host) {
+        return host == null ? null : BY_HOST.get(host);
+    }
+
+    /**
+     * Runs {@code send} now if a slot is free, otherwise once one is. Every
+     * acquired slot must be given back through exactly one of the
+     * {@code on...} methods.
+     */
+    public void acquire(Runnable send) {
+        synchronized (this) {
+            if (inFlight >= (int) limit) {
+                waiting.add(send);
+                return;
+            }
+            inFlight++;
+        }
+        send.run();
+    }
+
+    /** Response arrived; {@code sentAt} is the {@link System#nanoTime()} the request went out. */
+    public void onSuccess(long sentAt) {
+        long latencyNanos = System.nanoTime() - sentAt;
+        synchronized (this) {
+            boolean spike = latencyFactor > 0 && latencySamples >= MIN_LATENCY_SAMPLES
+                    && latencyNanos > averageLatencyNanos * latencyFactor;
+            averageLatencyNanos = latencySamples == 0 ? latencyNanos
+                    : averageLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - averageLatencyNanos);
+            latencySamples++;
+
+            if (spike) {
+                decrease(sentAt, LATENCY_BACKOFF, "latency " + latencyNanos / 1_000_000 + " ms");
+            } else if (inFlight >= limit / 2 && limit < maxLimit) {
+                // Only grow a limit that is being used; an idle host proves nothing.
+                int before = (int) limit;
+                limit = Math.min(maxLimit, limit + 1 / limit);
+                if ((int) limit > before) {
+                    System.out.println("[DEBUG] Concurrency limit for " + host + " raised to " + (int) limit);
+                }
+            }
+        }
+        release();
+    }
+
+    /** Host answered 429 or 503. */
+    public void onOverload(long sentAt, int status) {
+        synchronized (this) {
+            decrease(sentAt, OVERLOAD_BACKOFF, "HTTP " + status);
+        }
+        release();
+    }
+
+    /** Request timed out waiting for the host. */
+    public void onTimeout(long sentAt) {
+        synchronized (this) {
+            if (latencyFactor > 0) {
+                decrease(sentAt, LATENCY_BACKOFF, "timeout");
+            }
+        }
+        release();
+    }
+
+    /** Slot given back without a signal about load: cancelled, never sent, or another failure. */
+    public void onDropped() {
+        release();
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    private void decrease(long sentAt, double factor, String reason) {
+        if (sentAt - lastDecreaseAt < 0) {
+            return;
+        }
+        lastDecreaseAt = System.nanoTime();
+        double reduced = Math.max(MIN_LIMIT, limit * factor);
+        if ((int) reduced < (int) limit) {
+            System.out.println("[WARN] " + reason + " from " + host + " - lowering concurrency limit to "
+                    + (int) reduced);
+        }
+        limit = reduced;
+    }
+
+    private void release() {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            while (!waiting.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                ready.add(waiting.poll());
+            }
+        }
+        for (Runnable send : ready) {
+            send.run();
+        }
+    }
+}
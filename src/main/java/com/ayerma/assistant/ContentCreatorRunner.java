@@ -1,17 +1,30 @@
 package com.ayerma.assistant;
 
 import com.ayerma.assistant.client.BaAssistantClient;
-import com.ayerma.assistant.client.cli.GitHubCopilotCliClient;
-import com.ayerma.assistant.client.models.GitHubModelsClient;
+import com.ayerma.assistant.client.BaAssistantClients;
+import com.ayerma.assistant.client.routing.ModelTask;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class ContentCreatorRunner {
+    // The topic is the only thing read from the issue.
+    private static final IssueQuery TOPIC_FIELDS = IssueQuery.fields("summary");
+
     public static void main(String[] args) throws Exception {
         System.out.println("[INFO] Starting Content Creator Runner...");
 
@@ -42,7 +55,7 @@ public final class ContentCreatorRunner {
         String jiraEmail = Env.required("JIRA_EMAIL");
         String jiraApiToken = Env.required("JIRA_API_TOKEN");
 
-        HttpJson jiraHttp = new HttpJson();
+        HttpJson jiraHttp = HttpJson.shared();
         JiraClient jiraClient = new JiraClient(jiraHttp, jiraBaseUrl, jiraEmail, jiraApiToken);
 
         // Get topic from Jira or input
@@ -53,7 +66,7 @@ public final class ContentCreatorRunner {
             topic = providedSummary;
         } else {
             System.out.println("[INFO] Fetching issue details from Jira API...");
-            JsonNode issue = jiraClient.getIssue(issueKey);
+            JsonNode issue = jiraClient.getIssue(issueKey, TOPIC_FIELDS);
             System.out.println("[INFO] Successfully fetched issue from Jira");
             topic = textAt(issue, "/fields/summary");
         }
@@ -73,8 +86,9 @@ public final class ContentCreatorRunner {
 
         System.out.println("[INFO] Using GitHub Models API: " + model + " at " + modelsEndpoint);
 
-        HttpJson modelsHttp = new HttpJson();
-        BaAssistantClient client = new GitHubModelsClient(modelsHttp, modelsEndpoint, modelsApiKey, model);
+        HttpJson modelsHttp = HttpJson.shared();
+        BaAssistantClient client = BaAssistantClients.models(modelsHttp, modelsEndpoint, modelsApiKey, model,
+                ModelTask.QUESTIONS);
 
         System.out.println("[INFO] Calling AI to generate question list...");
         String assistantOutput = client.runBaAssistant(systemPrompt, userPrompt);
@@ -101,7 +115,7 @@ public final class ContentCreatorRunner {
         String jiraEmail = Env.required("JIRA_EMAIL");
         String jiraApiToken = Env.required("JIRA_API_TOKEN");
 
-        HttpJson jiraHttp = new HttpJson();
+        HttpJson jiraHttp = HttpJson.shared();
         JiraClient jiraClient = new JiraClient(jiraHttp, jiraBaseUrl, jiraEmail, jiraApiToken);
 
         // Read questions JSON
@@ -166,8 +180,13 @@ public final class ContentCreatorRunner {
             // The guidelines in content-instructions.md should be sufficient
         }
 
-        String systemPrompt = roleInstructions + javaSpecialist + contentInstructions
+        String basePrompt = roleInstructions + javaSpecialist + contentInstructions;
+        String systemPrompt = basePrompt
                 + "\n\nCRITICAL: Return ONLY the plain text answer. No JSON, no markdown, no preamble.";
+        String batchSystemPrompt = basePrompt + "\n\nCRITICAL: You will receive several numbered questions. "
+                + "Return ONLY a JSON object of the form {\"answers\": [{\"id\": <question number>, "
+                + "\"answer\": \"<plain text answer>\"}]} with one entry per question. "
+                + "Each answer is plain text: no markdown, no preamble, do not echo the question.";
 
         // Determine which client to use
         boolean useModelsApi = Env.optional("USE_MODELS_API", "true").equalsIgnoreCase("true");
@@ -180,69 +199,59 @@ public final class ContentCreatorRunner {
             String model = Env.optional("MODELS_MODEL", "gpt-4o");
             System.out.println("[INFO] Using model: " + model + " at " + modelsEndpoint);
 
-            HttpJson modelsHttp = new HttpJson();
-            client = new GitHubModelsClient(modelsHttp, modelsEndpoint, modelsApiKey, model);
+            HttpJson modelsHttp = HttpJson.shared();
+            client = BaAssistantClients.models(modelsHttp, modelsEndpoint, modelsApiKey, model, ModelTask.ANSWERS);
         } else {
             String cliCommand = Env.optional("COPILOT_CLI_COMMAND", "copilot");
             System.out.println("[INFO] Using CLI command: " + cliCommand);
-            client = new GitHubCopilotCliClient(cliCommand);
+            client = BaAssistantClients.copilotCli(cliCommand, ModelTask.ANSWERS);
         }
 
-        // Answer each question
-        ArrayNode answeredQuestions = HttpJson.MAPPER.createArrayNode();
-        int questionNumber = 1;
-        int maxRetries = 3;
+        // Answer the questions concurrently; results are collected in question order.
+        int parallelism = Math.max(1, Integer.parseInt(Env.optional("CONTENT_CREATOR_ANSWER_PARALLELISM", "4")));
+        int batchSize = Math.max(1, Integer.parseInt(Env.optional("CONTENT_CREATOR_ANSWER_BATCH_SIZE", "1")));
+        System.out.println("[INFO] Answering " + questions.size() + " questions with parallelism " + parallelism
+                + (batchSize > 1 ? " in batches of " + batchSize : ""));
+
+        List<String> questionTexts = new ArrayList<>();
         for (JsonNode questionNode : questions) {
-            String question = questionNode.asText("");
-            System.out
-                    .println("[INFO] Answering question " + questionNumber + "/" + questions.size() + ": " + question);
+            questionTexts.add(questionNode.asText(""));
+        }
 
-            String userPrompt = buildAnswerUserPrompt(topic, question);
+        int batchCount = (questionTexts.size() + batchSize - 1) / batchSize;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, batchCount), answerThreads());
+        List<Future<List<String>>> batches = new ArrayList<>();
+        ArrayNode answeredQuestions = HttpJson.MAPPER.createArrayNode();
+        try {
+            for (int from = 0; from < questionTexts.size(); from += batchSize) {
+                List<String> batch = questionTexts.subList(from, Math.min(questionTexts.size(), from + batchSize));
+                int firstNumber = from + 1;
+                batches.add(pool.submit(() -> answerBatch(client, systemPrompt, batchSystemPrompt, topic, batch,
+                        firstNumber, questionTexts.size())));
+            }
 
-            // Retry logic for API failures
-            String assistantOutput = null;
-            Exception lastError = null;
-            for (int attempt = 1; attempt <= maxRetries; attempt++) {
+            List<String> answers = new ArrayList<>();
+            for (Future<List<String>> batch : batches) {
                 try {
-                    assistantOutput = client.runBaAssistant(systemPrompt, userPrompt);
-                    break; // Success, exit retry loop
-                } catch (Exception e) {
-                    lastError = e;
-                    String errorMsg = e.getMessage();
-                    if (errorMsg != null && errorMsg.contains("missing finish_reason")) {
-                        System.err.println(
-                                "[WARN] API call failed (attempt " + attempt + "/" + maxRetries + "): " + errorMsg);
-                        if (attempt < maxRetries) {
-                            int waitSeconds = attempt * 2; // Exponential backoff: 2s, 4s, 6s
-                            System.out.println("[INFO] Retrying in " + waitSeconds + " seconds...");
-                            Thread.sleep(waitSeconds * 1000);
-                        }
-                    } else {
-                        // Different error, don't retry
-                        throw e;
-                    }
+                    answers.addAll(batch.get());
+                } catch (ExecutionException e) {
+                    // One unanswerable question fails the run, as before; finally stops the others.
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
                 }
             }
 
-            if (assistantOutput == null) {
-                System.err.println("[ERROR] Failed to get answer after " + maxRetries + " attempts");
-                throw new RuntimeException(
-                        "API call failed: " + (lastError != null ? lastError.getMessage() : "Unknown error"),
-                        lastError);
+            for (int i = 0; i < answers.size(); i++) {
+                // Build JSON programmatically from the plain-text answer.
+                // This avoids JSON parse failures caused by unescaped characters in model
+                // output.
+                String answerText = answers.get(i).trim();
+                ObjectNode answerData = HttpJson.MAPPER.createObjectNode();
+                answerData.put("question", questionTexts.get(i));
+                answerData.put("answer", answerText);
+                answeredQuestions.add(answerData);
             }
-
-            System.out.println("[DEBUG] Received answer for question " + questionNumber);
-
-            // Build JSON programmatically from the plain-text answer.
-            // This avoids JSON parse failures caused by unescaped characters in model
-            // output.
-            String answerText = assistantOutput.trim();
-            ObjectNode answerData = HttpJson.MAPPER.createObjectNode();
-            answerData.put("question", question);
-            answerData.put("answer", answerText);
-            answeredQuestions.add(answerData);
-
-            questionNumber++;
+        } finally {
+            pool.shutdownNow();
         }
 
         // Build final output
@@ -260,6 +269,123 @@ public final class ContentCreatorRunner {
         maybeEnrichJiraTicketFromOutput(jiraClient, issueKey, finalOutput);
     }
 
+    /**
+     * Answers several questions with one request that shares the (large)
+     * system prompt. Questions whose answer is missing or invalid in the
+     * batch response are answered one by one instead.
+     *
+     * @return answers in the order of {@code batch}
+     */
+    private static List<String> answerBatch(BaAssistantClient client, String systemPrompt, String batchSystemPrompt,
+            String topic, List<String> batch, int firstNumber, int questionCount) throws Exception {
+        String[] answers = new String[batch.size()];
+        if (batch.size() > 1) {
+            int lastNumber = firstNumber + batch.size() - 1;
+            System.out.println("[INFO] Answering questions " + firstNumber + "-" + lastNumber + "/" + questionCount
+                    + " in one request");
+            try {
+                String output = client.runBaAssistant(batchSystemPrompt, buildBatchAnswerUserPrompt(topic, batch));
+                parseBatchAnswers(output, answers);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                System.out.println("[WARN] Batch request for questions " + firstNumber + "-" + lastNumber
+                        + " failed: " + e.getMessage());
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (answers[i] != null) {
+                System.out.println("[DEBUG] Received answer for question " + (firstNumber + i));
+                continue;
+            }
+            if (batch.size() > 1) {
+                System.out.println("[WARN] No valid batch answer for question " + (firstNumber + i)
+                        + " - asking it on its own");
+            }
+            String question = batch.get(i);
+            answers[i] = answerQuestion(client, systemPrompt, buildAnswerUserPrompt(topic, question), question,
+                    firstNumber + i, questionCount);
+        }
+        return Arrays.asList(answers);
+    }
+
+    /**
+     * Fills {@code answers} from a {"answers": [{"id", "answer"}]} response.
+     * Entries with an unknown id or a blank answer are skipped, leaving those
+     * slots null.
+     */
+    private static void parseBatchAnswers(String output, String[] answers) throws IOException {
+        String json = output.trim();
+        // Models sometimes wrap JSON in a code fence despite instructions.
+        if (json.startsWith("```")) {
+            json = json.substring(json.indexOf('\n') + 1);
+            if (json.endsWith("```")) {
+                json = json.substring(0, json.length() - 3);
+            }
+        }
+        JsonNode parsed = HttpJson.MAPPER.readTree(json);
+        for (JsonNode entry : parsed.path("answers")) {
+            int index = entry.path("id").asInt(0) - 1;
+            JsonNode answer = entry.get("answer");
+            if (index < 0 || index >= answers.length || answer == null || !answer.isTextual()
+                    || answer.asText().isBlank() || answers[index] != null) {
+                continue;
+            }
+            answers[index] = answer.asText();
+        }
+    }
+
+    /**
+     * Answers one question, retrying the "missing finish_reason" failures the
+     * models API produces under load. Runs on the answer pool.
+     */
+    private static String answerQuestion(BaAssistantClient client, String systemPrompt, String userPrompt,
+            String question, int questionNumber, int questionCount) throws Exception {
+        System.out.println("[INFO] Answering question " + questionNumber + "/" + questionCount + ": " + question);
+
+        int maxRetries = 3;
+        Exception lastError = null;
+        for (int attempt = 1; attempt <= maxRetries; attempt++) {
+            try {
+                String assistantOutput = client.runBaAssistant(systemPrompt, userPrompt);
+                System.out.println("[DEBUG] Received answer for question " + questionNumber);
+                return assistantOutput;
+            } catch (Exception e) {
+                lastError = e;
+                String errorMsg = e.getMessage();
+                if (errorMsg != null && errorMsg.contains("missing finish_reason")) {
+                    System.err.println("[WARN] API call failed for question " + questionNumber + " (attempt "
+                            + attempt + "/" + maxRetries + "): " + errorMsg);
+                    if (attempt < maxRetries) {
+                        int waitSeconds = attempt * 2; // Exponential backoff: 2s, 4s, 6s
+                        System.out.println("[INFO] Retrying question " + questionNumber + " in " + waitSeconds
+                                + " seconds...");
+                        Thread.sleep(waitSeconds * 1000);
+                    }
+                } else {
+                    // Different error, don't retry
+                    throw e;
+                }
+            }
+        }
+
+        System.err.println("[ERROR] Failed to get answer for question " + questionNumber + " after " + maxRetries
+                + " attempts");
+        throw new RuntimeException(
+                "API call failed: " + (lastError != null ? lastError.getMessage() : "Unknown error"),
+                lastError);
+    }
+
+    private static ThreadFactory answerThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "answer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     private static void runLegacyMode(String[] args) throws Exception {
         System.out.println("[INFO] Running in LEGACY mode - single-step Q&A generation...");
 
@@ -270,7 +396,7 @@ public final class ContentCreatorRunner {
         String jiraEmail = Env.required("JIRA_EMAIL");
         String jiraApiToken = Env.required("JIRA_API_TOKEN");
 
-        HttpJson jiraHttp = new HttpJson();
+        HttpJson jiraHttp = HttpJson.shared();
         JiraClient jiraClient = new JiraClient(jiraHttp, jiraBaseUrl, jiraEmail, jiraApiToken);
 
         String outputPath = Env.contentCreatorOutputPath();
@@ -318,7 +444,7 @@ public final class ContentCreatorRunner {
             userPrompt = buildUserPrompt(issueKey, providedSummary);
         } else {
             System.out.println("[INFO] Fetching issue details from Jira API...");
-            JsonNode issue = jiraClient.getIssue(issueKey);
+            JsonNode issue = jiraClient.getIssue(issueKey, TOPIC_FIELDS);
             System.out.println("[INFO] Successfully fetched issue from Jira");
             String summary = textAt(issue, "/fields/summary");
             userPrompt = buildUserPrompt(issueKey, summary);
@@ -348,10 +474,10 @@ public final class ContentCreatorRunner {
             if (modelsApiKey == null || modelsApiKey.isBlank()) {
                 throw new IllegalStateException("MODELS_TOKEN is required when USE_MODELS_API=true");
             }
-            HttpJson modelsHttp = new HttpJson();
-            client = new GitHubModelsClient(modelsHttp, modelsEndpoint, modelsApiKey, model);
+            HttpJson modelsHttp = HttpJson.shared();
+            client = BaAssistantClients.models(modelsHttp, modelsEndpoint, modelsApiKey, model, ModelTask.PLAN);
         } else {
-            client = new GitHubCopilotCliClient(cliCommand);
+            client = BaAssistantClients.copilotCli(cliCommand, ModelTask.PLAN);
         }
 
         String assistantOutput = client.runBaAssistant(systemPrompt, userPrompt);
@@ -394,6 +520,19 @@ public final class ContentCreatorRunner {
         return prompt.toString();
     }
 
+    private static String buildBatchAnswerUserPrompt(String topic, List<String> questions) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Topic: ").append(topic).append("\n\n");
+        prompt.append("Questions:\n");
+        for (int i = 0; i < questions.size(); i++) {
+            prompt.append(i + 1).append(". ").append(questions.get(i)).append("\n");
+        }
+        prompt.append("\nProvide a comprehensive answer to each Java interview question following the Java specialist"
+                + " guidance, as if it had been asked on its own.\n");
+        prompt.append("Return ONLY the JSON object with one entry per question number.\n");
+        return prompt.toString();
+    }
+
     private static String buildAnswerUserPrompt(String topic, String question) {
         StringBuilder prompt = new StringBuilder();
         prompt.append("Topic: ").append(topic).append("\n\n");
@@ -1,17 +1,21 @@
 package com.ayerma.assistant;
 
 import com.ayerma.assistant.client.BaAssistantClient;
-import com.ayerma.assistant.client.cli.GitHubCopilotCliClient;
-import com.ayerma.assistant.client.models.GitHubModelsClient;
+import com.ayerma.assistant.client.BaAssistantClients;
+import com.ayerma.assistant.client.routing.ModelTask;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class ContentSplitterRunner {
     private static final String CREATED_TICKET_LABEL = "Content";
+    // Everything buildUserPromptFromJiraIssue reads.
+    private static final IssueQuery PROMPT_FIELDS = IssueQuery.fields("summary", "description");
 
     public static void main(String[] args) throws Exception {
         System.out.println("[INFO] Starting Content-Splitter Runner...");
@@ -23,7 +27,7 @@ public final class ContentSplitterRunner {
         String jiraEmail = Env.required("JIRA_EMAIL");
         String jiraApiToken = Env.required("JIRA_API_TOKEN");
 
-        HttpJson jiraHttp = new HttpJson();
+        HttpJson jiraHttp = HttpJson.shared();
         JiraClient jiraClient = new JiraClient(jiraHttp, jiraBaseUrl, jiraEmail, jiraApiToken);
 
         String outputPath = Env.contentSplitterOutputPath();
@@ -65,6 +69,8 @@ public final class ContentSplitterRunner {
 
         System.out.println("[INFO] Loading instructions from: " + instructionsPath);
         String systemPrompt = loadSystemPrompt(instructionsPath, technicalReqPath);
+        int promptBudget = PromptBudgeter.availableTokens(useModelsApi ? model : Env.optional("CLI_MODEL", null),
+                systemPrompt);
 
         // Check if summary and description are provided to skip Jira API call
         String providedSummary = Env.optional("JIRA_ISSUE_SUMMARY", null);
@@ -75,13 +81,13 @@ public final class ContentSplitterRunner {
         if (providedSummary != null && !providedSummary.isBlank()) {
             // Build prompt from provided inputs (skip Jira API call)
             System.out.println("[INFO] Using provided summary and description (skipping Jira API call)");
-            userPrompt = buildUserPrompt(issueKey, providedSummary, providedDescription);
+            userPrompt = buildUserPrompt(issueKey, providedSummary, providedDescription, promptBudget);
         } else {
             // Fetch from Jira (existing behavior)
             System.out.println("[INFO] Fetching issue details from Jira API...");
-            issue = jiraClient.getIssue(issueKey);
+            issue = jiraClient.getIssue(issueKey, PROMPT_FIELDS);
             System.out.println("[INFO] Successfully fetched issue from Jira");
-            userPrompt = buildUserPromptFromJiraIssue(issue);
+            userPrompt = buildUserPromptFromJiraIssue(issue, promptBudget);
         }
 
         // Always write the prompt to file first
@@ -108,10 +114,10 @@ public final class ContentSplitterRunner {
             if (modelsApiKey == null || modelsApiKey.isBlank()) {
                 throw new IllegalStateException("MODELS_TOKEN is required when USE_MODELS_API=true");
             }
-            HttpJson modelsHttp = new HttpJson();
-            client = new GitHubModelsClient(modelsHttp, modelsEndpoint, modelsApiKey, model);
+            HttpJson modelsHttp = HttpJson.shared();
+            client = BaAssistantClients.models(modelsHttp, modelsEndpoint, modelsApiKey, model, ModelTask.PLAN);
         } else {
-            client = new GitHubCopilotCliClient(cliCommand);
+            client = BaAssistantClients.copilotCli(cliCommand, ModelTask.PLAN);
         }
 
         String assistantOutput = client.runBaAssistant(systemPrompt, userPrompt);
@@ -153,7 +159,7 @@ public final class ContentSplitterRunner {
 
         System.out.println("[INFO] Subtopics found: " + subtopics.size());
 
-        int createdCount = 0;
+        List<IssueSpec> specs = new ArrayList<>();
         for (JsonNode subtopic : subtopics) {
             String title = textAt(subtopic, "/title");
 
@@ -162,21 +168,27 @@ public final class ContentSplitterRunner {
             System.out.println("[DEBUG] Creating task for subtopic with type=" + taskIssueType + ", issue=" + issueKey
                     + ", summary=" + summary);
 
-            String createdKey;
-            if (useParentRelationship) {
-                createdKey = jiraClient.createIssueWithParentAndLabels(projectKey, taskIssueType, issueKey, summary,
-                        null, CREATED_TICKET_LABEL);
-            } else {
-                createdKey = jiraClient.createIssueWithLabels(projectKey, taskIssueType, summary, null,
-                        CREATED_TICKET_LABEL);
-                jiraClient.linkIssues(createdKey, issueKey, linkType);
+            IssueSpec spec = new IssueSpec(projectKey, taskIssueType, summary, null).withLabels(CREATED_TICKET_LABEL);
+            // Non-subtask types are linked in the create request itself.
+            specs.add(useParentRelationship ? spec.withParent(issueKey) : spec.withLink(linkType, issueKey));
+        }
+        BulkCreateResult created = jiraClient.createIssuesBulk(specs);
+
+        int createdCount = 0;
+        for (int i = 0; i < specs.size(); i++) {
+            String summary = specs.get(i).summary();
+            if (!created.isCreated(i)) {
+                System.out.println("[WARN] Failed to create Jira task (" + summary + "): " + created.error(i));
+                continue;
             }
+            String createdKey = created.key(i);
             createdCount++;
             System.out.println("[SUCCESS] Created Jira task: " + createdKey + " (" + summary + ")");
         }
 
         System.out
                 .println("[SUCCESS] Created " + createdCount + " Jira tasks with '" + CREATED_TICKET_LABEL + "' label");
+        created.throwIfAnyFailed();
     }
 
     private static boolean isSubtaskIssueType(String issueTypeName) {
@@ -217,24 +229,24 @@ public final class ContentSplitterRunner {
         return systemPrompt.toString();
     }
 
-    private static String buildUserPrompt(String issueKey, String summary, String description) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("# Content Breakdown Request\n\n");
-        sb.append("Issue Key: ").append(issueKey).append("\n\n");
-        sb.append("## Content Area\n\n");
-        sb.append(summary).append("\n\n");
+    private static String buildUserPrompt(String issueKey, String summary, String description, int maxTokens) {
+        PromptBudgeter prompt = new PromptBudgeter();
+        prompt.add("# Content Breakdown Request\n\n"
+                + "Issue Key: " + issueKey + "\n\n"
+                + "## Content Area\n\n"
+                + summary + "\n\n");
 
         if (description != null && !description.isBlank()) {
-            sb.append("## Content Description\n\n");
-            sb.append(description).append("\n\n");
+            prompt.add("description", PromptBudgeter.IMPORTANT,
+                    "## Content Description\n\n" + description + "\n\n");
         }
 
-        sb.append(
+        prompt.add(
                 "Please analyze this content request and break it down into logical subtopics. Return the JSON structure as specified.");
-        return sb.toString();
+        return prompt.render(maxTokens);
     }
 
-    private static String buildUserPromptFromJiraIssue(JsonNode issue) {
+    private static String buildUserPromptFromJiraIssue(JsonNode issue, int maxTokens) {
         JsonNode fields = issue.get("fields");
         if (fields == null) {
             throw new IllegalStateException("Jira issue missing 'fields' node");
@@ -244,7 +256,7 @@ public final class ContentSplitterRunner {
         String summary = fields.has("summary") ? fields.get("summary").asText() : "";
         String description = extractPlainText(fields.get("description"));
 
-        return buildUserPrompt(key, summary, description);
+        return buildUserPrompt(key, summary, description, maxTokens);
     }
 
     private static String extractPlainText(JsonNode adfNode) {
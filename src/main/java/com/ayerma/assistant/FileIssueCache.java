@@ -0,0 +1,94 @@
+package com.ayerma.assistant;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * On-disk {@link IssueCache}: one JSON file per entry under a directory, so
+ * hot issues survive between workflow steps that run in separate JVMs.
+ * Failures are logged and treated as cache misses.
+ */
+public final class FileIssueCache implements IssueCache {
+    private final Path dir;
+
+    public FileIssueCache(Path dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public Entry get(String cacheKey) {
+        Path file = fileFor(cacheKey);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            JsonNode stored = HttpJson.MAPPER.readTree(file.toFile());
+            if (!cacheKey.equals(stored.path("cacheKey").asText())) {
+                return null;
+            }
+            return new Entry(stored.get("issue"),
+                    stored.path("etag").asText(null),
+                    stored.path("updated").asText(null),
+                    stored.path("fetchedAt").asLong(0));
+        } catch (IOException e) {
+            System.out.println("[WARN] Ignoring unreadable Jira cache file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String cacheKey, Entry entry) {
+        ObjectNode stored = HttpJson.MAPPER.createObjectNode();
+        stored.put("cacheKey", cacheKey);
+        stored.put("etag", entry.etag());
+        stored.put("updated", entry.updated());
+        stored.put("fetchedAt", entry.fetchedAtMillis());
+        stored.set("issue", entry.issue());
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, "issue", ".tmp");
+            HttpJson.MAPPER.writeValue(tmp.toFile(), stored);
+            Files.move(tmp, fileFor(cacheKey), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("[WARN] Could not write Jira cache entry for " + cacheKey + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void invalidate(String issueKey) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        String prefix = sanitize(issueKey);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "{" + prefix + ".json," + prefix + ".*.json}")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.out.println("[WARN] Could not invalidate Jira cache for " + issueKey + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * {@code KEY.json} for the full issue, {@code KEY.<hash>.json} for other
+     * variants, so every entry of an issue can be found by its key.
+     */
+    private Path fileFor(String cacheKey) {
+        String issueKey = JiraClient.issueKeyOf(cacheKey);
+        if (issueKey.equals(cacheKey)) {
+            return dir.resolve(sanitize(issueKey) + ".json");
+        }
+        return dir.resolve(sanitize(issueKey) + "." + Integer.toHexString(cacheKey.hashCode()) + ".json");
+    }
+
+    private static String sanitize(String value) {
+        // Dots are reserved as the variant separator.
+        return value.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
@@ -13,7 +13,8 @@ public final class GitHubDispatchClient {
     private final String token;
 
     public GitHubDispatchClient(HttpJson http, String owner, String repo, String token) {
-        this.http = http;
+        // A repeated dispatch would start a second workflow run, so POSTs keep the default rules.
+        this.http = http.withRetryPolicy(RetryPolicy.fromEnv("GITHUB_DISPATCH"));
         this.owner = owner;
         this.repo = repo;
         this.token = token;
@@ -15,7 +15,8 @@ public final class GitHubModelsClient {
     private final String model;
 
     public GitHubModelsClient(HttpJson http, String endpoint, String apiKey, String model) {
-        this.http = http;
+        // Chat completions have no side effects, so even POSTs are safe to repeat.
+        this.http = http.withRetryPolicy(RetryPolicy.fromEnv("MODELS").withNonIdempotentRetries(true));
         this.endpoint = endpoint;
         this.apiKey = apiKey;
         this.model = model;
@@ -0,0 +1,84 @@
+package com.ayerma.assistant;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide registry of {@link HttpClient}s, one per host.
+ *
+ * Every {@link HttpJson} in the process resolves its client here, so Jira,
+ * GitHub and GitHub Models calls from different runners and API clients share
+ * connections, TLS sessions and HTTP/2 streams instead of each opening their
+ * own pool.
+ *
+ * Configuration (read once, on first use):
+ * - HTTP_VERSION: HTTP_2 (default) or HTTP_1_1
+ * - HTTP_CONNECT_TIMEOUT_SECONDS: default 20
+ * - HTTP_EXECUTOR_THREADS: 0 (default) for a cached pool, otherwise a fixed pool size
+ * - HTTP_POOL_SIZE: max idle HTTP/1.1 connections kept per client (JDK default: unlimited)
+ * - HTTP_KEEPALIVE_SECONDS: how long idle connections are kept (JDK default: 1200)
+ */
+public final class HttpClients {
+    private static final Map<String, HttpClient> BY_HOST = new ConcurrentHashMap<>();
+    private static final ExecutorService EXECUTOR;
+    // Kept apart from EXECUTOR: consumers block on body streams that EXECUTOR threads fill,
+    // so sharing a bounded pool could deadlock.
+    private static final ExecutorService BODY_EXECUTOR = Executors.newCachedThreadPool(daemonThreads("http-body"));
+    private static final HttpClient.Version VERSION;
+    private static final Duration CONNECT_TIMEOUT;
+
+    static {
+        // The JDK reads its pool settings once, when the first client is created.
+        copyToSystemProperty("HTTP_POOL_SIZE", "jdk.httpclient.connectionPoolSize");
+        copyToSystemProperty("HTTP_KEEPALIVE_SECONDS", "jdk.httpclient.keepalive.timeout");
+
+        int threads = Integer.parseInt(Env.optional("HTTP_EXECUTOR_THREADS", "0"));
+        EXECUTOR = threads > 0
+                ? Executors.newFixedThreadPool(threads, daemonThreads("http"))
+                : Executors.newCachedThreadPool(daemonThreads("http"));
+        VERSION = HttpClient.Version.valueOf(Env.optional("HTTP_VERSION", "HTTP_2").toUpperCase());
+        CONNECT_TIMEOUT = Duration.ofSeconds(Long.parseLong(Env.optional("HTTP_CONNECT_TIMEOUT_SECONDS", "20")));
+    }
+
+    private HttpClients() {
+    }
+
+    public static HttpClient forHost(String host) {
+        return BY_HOST.computeIfAbsent(host == null ? "" : host, h -> HttpClient.newBuilder()
+                .version(VERSION)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .executor(EXECUTOR)
+                .build());
+    }
+
+    /**
+     * Executor for work that consumes response bodies, which may block on the
+     * network. Never the clients' own executor.
+     */
+    public static ExecutorService bodyExecutor() {
+        return BODY_EXECUTOR;
+    }
+
+    private static void copyToSystemProperty(String envName, String property) {
+        String value = Env.optional(envName, null);
+        if (value != null && System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            // Runners exit from main(); idle pool threads must not keep the JVM alive.
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
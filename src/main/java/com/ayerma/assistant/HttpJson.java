@@ -3,64 +3,470 @@ package com.ayerma.assistant;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public final class HttpJson {
     public static final ObjectMapper MAPPER = new ObjectMapper();
 
-    private final HttpClient client;
+    // Error bodies are usually only kept for diagnostics, so by default never buffer more than this.
+    private static final int MAX_ERROR_BODY_CHARS = 1500;
+
+    private static final HttpJson SHARED = new HttpJson();
+
+    // Runs the (blocking) stream parsing of async responses.
+    private final ExecutorService executor;
+    private final RetryPolicy retryPolicy;
+    private final int maxErrorBodyChars;
 
     public HttpJson() {
-        this.client = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(20))
-                .build();
+        this(RetryPolicy.defaults(), MAX_ERROR_BODY_CHARS);
+    }
+
+    private HttpJson(RetryPolicy retryPolicy, int maxErrorBodyChars) {
+        this.executor = HttpClients.bodyExecutor();
+        this.retryPolicy = retryPolicy;
+        this.maxErrorBodyChars = maxErrorBodyChars;
+    }
+
+    /**
+     * Process-wide instance. Connections live in {@link HttpClients}, so this is
+     * only a convenience; every HttpJson shares the same per-host clients.
+     */
+    public static HttpJson shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a view applying the given retry rules, so each API client can tune
+     * retries for its own endpoint while sharing connections.
+     */
+    public HttpJson withRetryPolicy(RetryPolicy policy) {
+        return new HttpJson(policy, maxErrorBodyChars);
+    }
+
+    /**
+     * Returns a view keeping up to {@code maxChars} of error response bodies in
+     * {@link HttpStatusException#body()}, for endpoints whose error bodies
+     * must be parsed rather than just logged.
+     */
+    public HttpJson withErrorBodyLimit(int maxChars) {
+        return new HttpJson(retryPolicy, maxChars);
     }
 
     public JsonNode getJson(HttpRequest request) throws IOException, InterruptedException {
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        int status = response.statusCode();
-        if (status < 200 || status >= 300) {
-            throw new IOException("HTTP " + status + " for " + request.uri() + ": " + truncate(response.body()));
-        }
-        return MAPPER.readTree(response.body());
+        return await(getJsonAsync(request));
     }
 
     public JsonNode postJson(HttpRequest request) throws IOException, InterruptedException {
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        int status = response.statusCode();
-        if (status < 200 || status >= 300) {
-            throw new IOException("HTTP " + status + " for " + request.uri() + ": " + truncate(response.body()));
+        return await(postJsonAsync(request));
+    }
+
+    public void send(HttpRequest request) throws IOException, InterruptedException {
+        await(sendAsync(request));
+    }
+
+    public CompletableFuture<JsonNode> getJsonAsync(HttpRequest request) {
+        CompletableFuture<HttpResponse<InputStream>> exchange = exchangeAsync(request, 0);
+        return abortOnCancel(exchange, exchange.thenApplyAsync(response -> readJson(response, false), executor));
+    }
+
+    public CompletableFuture<JsonNode> postJsonAsync(HttpRequest request) {
+        return postJsonAsync(request, 0);
+    }
+
+    /**
+     * POST whose cost against the host's model-token budget is known up front
+     * (see {@link RateLimiter}).
+     */
+    public CompletableFuture<JsonNode> postJsonAsync(HttpRequest request, long tokenCost) {
+        CompletableFuture<HttpResponse<InputStream>> exchange = exchangeAsync(request, tokenCost);
+        return abortOnCancel(exchange, exchange.thenApplyAsync(response -> readJson(response, true), executor));
+    }
+
+    /**
+     * GET that also exposes status and headers, for conditional requests. A 304
+     * Not Modified completes normally with an empty body.
+     */
+    public CompletableFuture<JsonResponse> getJsonResponseAsync(HttpRequest request) {
+        CompletableFuture<HttpResponse<InputStream>> exchange = exchangeAsync(request, 0);
+        return abortOnCancel(exchange, exchange.thenApplyAsync(response -> new JsonResponse(response.statusCode(),
+                response.headers(), readJson(response, false)), executor));
+    }
+
+    public CompletableFuture<Void> sendAsync(HttpRequest request) {
+        CompletableFuture<HttpResponse<InputStream>> exchange = exchangeAsync(request, 0);
+        return abortOnCancel(exchange, exchange.thenAcceptAsync(HttpJson::discard, executor));
+    }
+
+    /**
+     * Sends the request and hands each line of the response body to
+     * {@code onLine} as it arrives, for server-sent events and similar
+     * line-delimited streams.
+     *
+     * Rate limiting, the circuit breaker and retries apply until a 2xx status
+     * arrives; a stream that breaks off afterwards is not retried, since its
+     * lines have already been delivered. The request timeout only covers the
+     * wait for the response headers, so long streams are not cut off.
+     * Cancelling the returned future closes the stream.
+     */
+    public CompletableFuture<Void> streamLinesAsync(HttpRequest request, long tokenCost, Consumer<String> onLine) {
+        CompletableFuture<HttpResponse<InputStream>> exchange = exchangeAsync(request, tokenCost);
+        return abortOnCancel(exchange,
+                exchange.thenAcceptAsync(response -> readLines(response, onLine), executor));
+    }
+
+    /**
+     * Makes cancelling {@code derived} cancel {@code source} as well. Stages
+     * derived with thenApply and friends do not do this on their own, so
+     * without it a caller giving up on a result leaves the request behind it
+     * running.
+     *
+     * @return {@code derived}
+     */
+    public static <T> CompletableFuture<T> propagateCancellation(CompletableFuture<?> source,
+            CompletableFuture<T> derived) {
+        derived.whenComplete((ignored, error) -> {
+            if (derived.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return derived;
+    }
+
+    /**
+     * Cancelling the stage that reads the body aborts the exchange, or closes
+     * the body when the response has already arrived: a cancelled stage never
+     * runs its reader, and a reader already running is unblocked and fails.
+     */
+    private static <T> CompletableFuture<T> abortOnCancel(CompletableFuture<HttpResponse<InputStream>> exchange,
+            CompletableFuture<T> result) {
+        result.whenComplete((ignored, error) -> {
+            if (!result.isCancelled()) {
+                return;
+            }
+            exchange.cancel(true);
+            if (exchange.isDone() && !exchange.isCompletedExceptionally()) {
+                closeQuietly(exchange.join().body());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Sends the request under the host's rate limit, concurrency limit and
+     * circuit breaker, and the retry policy. Completes with a 2xx response whose body is still
+     * unread, or exceptionally with the last failure ({@link HttpStatusException}
+     * for error statuses). Cancelling the returned future aborts the in-flight
+     * attempt and any pending retry.
+     */
+    private CompletableFuture<HttpResponse<InputStream>> exchangeAsync(HttpRequest request, long tokenCost) {
+        Exchange exchange = new Exchange(request, tokenCost);
+        exchange.result.whenComplete((response, error) -> {
+            CompletableFuture<?> current = exchange.inFlight.get();
+            if (exchange.result.isCancelled() && current != null) {
+                current.cancel(true);
+            }
+        });
+        attempt(exchange, 1);
+        return exchange.result;
+    }
+
+    private void attempt(Exchange exchange, int attempt) {
+        if (exchange.result.isDone()) {
+            return;
         }
-        if (response.body() == null || response.body().isBlank()) {
-            return MAPPER.createObjectNode();
+        String host = exchange.request.uri().getHost();
+        CircuitBreaker breaker = CircuitBreaker.forHost(host);
+        if (!breaker.tryAcquire()) {
+            exchange.result.completeExceptionally(new IOException("Circuit breaker open for " + breaker.host()
+                    + " - failing fast without calling " + exchange.request.uri()));
+            return;
         }
-        return MAPPER.readTree(response.body());
+
+        RateLimiter limiter = RateLimiter.forHost(host);
+        long waitNanos = limiter == null ? 0 : limiter.reserve(exchange.tokenCost);
+        if (waitNanos <= 0) {
+            send(exchange, attempt, breaker, limiter);
+            return;
+        }
+        if (waitNanos >= 1_000_000_000L) {
+            System.out.println("[DEBUG] Rate limit for " + host + " - delaying request by "
+                    + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms");
+        }
+        CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS, executor)
+                .execute(() -> send(exchange, attempt, breaker, limiter));
     }
 
-    public void send(HttpRequest request) throws IOException, InterruptedException {
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        int status = response.statusCode();
-        if (status < 200 || status >= 300) {
-            throw new IOException("HTTP " + status + " for " + request.uri() + ": " + truncate(response.body()));
+    private void send(Exchange exchange, int attempt, CircuitBreaker breaker, RateLimiter limiter) {
+        ConcurrencyLimiter concurrency = ConcurrencyLimiter.forHost(exchange.request.uri().getHost());
+        if (concurrency == null) {
+            transmit(exchange, attempt, breaker, limiter, null);
+        } else {
+            concurrency.acquire(() -> transmit(exchange, attempt, breaker, limiter, concurrency));
         }
     }
 
+    private static void abandon(CircuitBreaker breaker, ConcurrencyLimiter concurrency) {
+        breaker.onAbandoned();
+        if (concurrency != null) {
+            concurrency.onDropped();
+        }
+    }
+
+    private void transmit(Exchange exchange, int attempt, CircuitBreaker breaker, RateLimiter limiter,
+            ConcurrencyLimiter concurrency) {
+        if (exchange.result.isDone()) {
+            // Cancelled while waiting for the rate limit or a concurrency slot.
+            abandon(breaker, concurrency);
+            return;
+        }
+        HttpRequest request = exchange.request;
+        long sentAt = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> call;
+        try {
+            call = HttpClients.forHost(request.uri().getHost())
+                    .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (RuntimeException e) {
+            // Rejected before anything was sent (e.g. the client is shut down).
+            abandon(breaker, concurrency);
+            exchange.result.completeExceptionally(e);
+            return;
+        }
+        exchange.inFlight.set(call);
+        call.whenCompleteAsync((response, error) -> {
+            if (concurrency != null) {
+                // The slot covers the wait for the response headers; bodies are read after it is released.
+                if (error != null && exchange.result.isCancelled()) {
+                    concurrency.onDropped();
+                } else if (error != null) {
+                    if (unwrap(error) instanceof HttpTimeoutException) {
+                        concurrency.onTimeout(sentAt);
+                    } else {
+                        concurrency.onDropped();
+                    }
+                } else if (response.statusCode() == 429 || response.statusCode() == 503) {
+                    concurrency.onOverload(sentAt, response.statusCode());
+                } else {
+                    concurrency.onSuccess(sentAt);
+                }
+            }
+
+            Throwable failure;
+            if (error != null && exchange.result.isCancelled()) {
+                // We aborted it ourselves (e.g. a hedge lost); that says nothing about the host.
+                breaker.onAbandoned();
+                return;
+            } else if (error != null) {
+                failure = unwrap(error);
+                breaker.onFailure();
+            } else if (isSuccess(response.statusCode())) {
+                breaker.onSuccess();
+                if (limiter != null) {
+                    limiter.onSuccess();
+                }
+                if (!exchange.result.complete(response)) {
+                    // Caller already gave up; release the connection.
+                    discardQuietly(response);
+                }
+                return;
+            } else {
+                if (response.statusCode() >= 500) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+                if (response.statusCode() == 429 && limiter != null) {
+                    limiter.onThrottled();
+                }
+                failure = statusError(request, response);
+            }
+
+            Optional<Duration> delay = exchange.result.isDone()
+                    ? Optional.empty()
+                    : retryPolicy.nextDelay(request.method(), attempt, failure);
+            if (delay.isEmpty()) {
+                exchange.result.completeExceptionally(failure);
+                return;
+            }
+            System.out.println("[WARN] " + describe(failure) + " (attempt " + attempt + "/"
+                    + retryPolicy.maxAttempts() + ") - retrying in " + delay.get().toMillis() + " ms");
+            CompletableFuture.delayedExecutor(delay.get().toMillis(), TimeUnit.MILLISECONDS, executor)
+                    .execute(() -> attempt(exchange, attempt + 1));
+        }, executor);
+    }
+
     public static HttpRequest.Builder baseRequest(URI uri) {
         return HttpRequest.newBuilder(uri)
                 .timeout(Duration.ofSeconds(60));
     }
 
-    private static String truncate(String body) {
+    /**
+     * Waits for an async call and rethrows its failure the way the blocking API
+     * always has: I/O problems as {@link IOException}, programming errors as
+     * unchecked exceptions.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException | CompletionException e) {
+            throw rethrow(e.getCause() != null ? e.getCause() : e);
+        } catch (CancellationException e) {
+            throw new IOException("Request was cancelled", e);
+        }
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        cause = unwrap(cause);
+        if (cause instanceof UncheckedIOException) {
+            return ((UncheckedIOException) cause).getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause.getMessage(), cause);
+    }
+
+    /**
+     * Parses the response body straight from the network stream, so the raw body
+     * is never materialised as a String next to the resulting tree.
+     */
+    private static JsonNode readJson(HttpResponse<InputStream> response, boolean allowEmpty) {
+        try (InputStream body = response.body()) {
+            JsonNode node = MAPPER.readTree(body);
+            // Jackson returns a missing node (or null) for an empty body, e.g. 204 No Content.
+            if (allowEmpty && (node == null || node.isMissingNode())) {
+                return MAPPER.createObjectNode();
+            }
+            return node == null ? MAPPER.missingNode() : node;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void readLines(HttpResponse<InputStream> response, Consumer<String> onLine) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                onLine.accept(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException ignored) {
+            // nothing left to report to
+        }
+    }
+
+    private static void discard(HttpResponse<InputStream> response) {
+        try (InputStream body = response.body()) {
+            // Drain so the connection can be reused.
+            body.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void discardQuietly(HttpResponse<InputStream> response) {
+        try {
+            discard(response);
+        } catch (UncheckedIOException ignored) {
+            // nothing left to report to
+        }
+    }
+
+    private static boolean isSuccess(int status) {
+        // 304 only ever answers a conditional request, where it is the good outcome.
+        return (status >= 200 && status < 300) || status == 304;
+    }
+
+    private HttpStatusException statusError(HttpRequest request, HttpResponse<InputStream> response) {
+        String body;
+        try (InputStream in = response.body()) {
+            body = readErrorBody(in, maxErrorBodyChars);
+        } catch (IOException e) {
+            body = "<unreadable body: " + e.getMessage() + ">";
+        }
+        return new HttpStatusException(response.statusCode(), request.uri(), response.headers(), body);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static String describe(Throwable failure) {
+        if (failure instanceof HttpStatusException) {
+            HttpStatusException statusError = (HttpStatusException) failure;
+            return "HTTP " + statusError.statusCode() + " for " + statusError.uri();
+        }
+        return failure.getClass().getSimpleName() + ": " + failure.getMessage();
+    }
+
+    private static String readErrorBody(InputStream body, int maxChars) {
+        try {
+            // UTF-8 never needs more than 4 bytes per char; one extra char tells us to add the ellipsis.
+            byte[] bytes = body.readNBytes((maxChars + 1) * 4);
+            return truncate(new String(bytes, StandardCharsets.UTF_8), maxChars);
+        } catch (IOException e) {
+            return "<unreadable body: " + e.getMessage() + ">";
+        }
+    }
+
+    private static String truncate(String body, int max) {
         if (body == null)
             return "";
-        int max = 1500;
         if (body.length() <= max)
             return body;
         return body.substring(0, max) + "…";
     }
+
+    private static final class Exchange {
+        private final HttpRequest request;
+        private final long tokenCost;
+        private final CompletableFuture<HttpResponse<InputStream>> result = new CompletableFuture<>();
+        private final AtomicReference<CompletableFuture<?>> inFlight = new AtomicReference<>();
+
+        private Exchange(HttpRequest request, long tokenCost) {
+            this.request = request;
+            this.tokenCost = tokenCost;
+        }
+    }
 }
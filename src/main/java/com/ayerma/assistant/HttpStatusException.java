@@ -0,0 +1,53 @@
+package com.ayerma.assistant;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+
+/**
+ * Non-2xx response from {@link HttpJson}. Keeps the status and headers so
+ * callers can react to throttling or server errors without parsing messages.
+ */
+public final class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_MESSAGE_BODY_CHARS = 1500;
+
+    private final int statusCode;
+    private final URI uri;
+    private final transient HttpHeaders headers;
+    private final String body;
+
+    public HttpStatusException(int statusCode, URI uri, HttpHeaders headers, String body) {
+        super("HTTP " + statusCode + " for " + uri + ": " + abbreviate(body));
+        this.statusCode = statusCode;
+        this.uri = uri;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    public URI uri() {
+        return uri;
+    }
+
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    // Keeps log lines readable when a client kept a large error body.
+    private static String abbreviate(String body) {
+        return body == null || body.length() <= MAX_MESSAGE_BODY_CHARS ? body
+                : body.substring(0, MAX_MESSAGE_BODY_CHARS) + "…";
+    }
+
+    /**
+     * Response body, truncated to what {@link HttpJson} keeps for errors (see
+     * {@link HttpJson#withErrorBodyLimit(int)}).
+     */
+    public String body() {
+        return body;
+    }
+}
@@ -0,0 +1,91 @@
+package com.ayerma.assistant;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.file.Path;
+
+/**
+ * Pluggable store for Jira issue representations used by {@link JiraClient}.
+ *
+ * Entries keep enough metadata (ETag, {@code fields.updated}, fetch time) for
+ * the client to revalidate them with a cheap request instead of downloading
+ * the whole issue again.
+ */
+public interface IssueCache {
+    Entry get(String cacheKey);
+
+    void put(String cacheKey, Entry entry);
+
+    void invalidate(String issueKey);
+
+    /** Cache that never stores anything. */
+    static IssueCache disabled() {
+        return new IssueCache() {
+            @Override
+            public Entry get(String cacheKey) {
+                return null;
+            }
+
+            @Override
+            public void put(String cacheKey, Entry entry) {
+            }
+
+            @Override
+            public void invalidate(String issueKey) {
+            }
+        };
+    }
+
+    /**
+     * Builds the cache described by the environment:
+     * - JIRA_CACHE_ENABLED (default: true)
+     * - JIRA_CACHE_MAX_ENTRIES (default: 256) for the in-memory LRU
+     * - JIRA_CACHE_DIR (optional) adds an on-disk store that survives across workflow steps
+     */
+    static IssueCache fromEnv() {
+        if (!Env.optional("JIRA_CACHE_ENABLED", "true").equalsIgnoreCase("true")) {
+            return disabled();
+        }
+        IssueCache memory = new LruIssueCache(Integer.parseInt(Env.optional("JIRA_CACHE_MAX_ENTRIES", "256")));
+        String dir = Env.optional("JIRA_CACHE_DIR", null);
+        if (dir == null) {
+            return memory;
+        }
+        return new TieredIssueCache(memory, new FileIssueCache(Path.of(dir)));
+    }
+
+    final class Entry {
+        private final JsonNode issue;
+        private final String etag;
+        private final String updated;
+        private final long fetchedAtMillis;
+
+        public Entry(JsonNode issue, String etag, String updated, long fetchedAtMillis) {
+            this.issue = issue;
+            this.etag = etag;
+            this.updated = updated;
+            this.fetchedAtMillis = fetchedAtMillis;
+        }
+
+        public JsonNode issue() {
+            return issue;
+        }
+
+        public String etag() {
+            return etag;
+        }
+
+        public String updated() {
+            return updated;
+        }
+
+        public long fetchedAtMillis() {
+            return fetchedAtMillis;
+        }
+
+        /** Same content, confirmed current just now. */
+        public Entry revalidated() {
+            return new Entry(issue, etag, updated, System.currentTimeMillis());
+        }
+    }
+}
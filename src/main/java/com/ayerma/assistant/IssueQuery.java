@@ -0,0 +1,74 @@
+package com.ayerma.assistant;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Which parts of an issue {@link JiraClient#getIssue(String, IssueQuery)}
+ * should download: the {@code fields=} and {@code expand=} parameters of
+ * {@code /rest/api/3/issue/{key}}.
+ *
+ * Projected queries always include {@code updated}, which the issue cache
+ * needs to revalidate entries.
+ */
+public final class IssueQuery {
+    private static final IssueQuery ALL = new IssueQuery(Collections.emptyList(), Collections.emptyList());
+
+    private final List<String> fields;
+    private final List<String> expand;
+
+    private IssueQuery(List<String> fields, List<String> expand) {
+        this.fields = fields;
+        this.expand = expand;
+    }
+
+    /** Every field, no expansions: what Jira returns without parameters. */
+    public static IssueQuery all() {
+        return ALL;
+    }
+
+    public static IssueQuery fields(String... fields) {
+        List<String> projected = new ArrayList<>(Arrays.asList(fields));
+        if (!projected.contains("updated")) {
+            projected.add("updated");
+        }
+        return new IssueQuery(Collections.unmodifiableList(projected), Collections.emptyList());
+    }
+
+    public IssueQuery expand(String... expand) {
+        return new IssueQuery(fields, Collections.unmodifiableList(Arrays.asList(expand)));
+    }
+
+    public List<String> fields() {
+        return fields;
+    }
+
+    public List<String> expansions() {
+        return expand;
+    }
+
+    /**
+     * @return the query string without the leading '?', or null for {@link #all()}
+     */
+    public String toQueryString() {
+        StringBuilder query = new StringBuilder();
+        if (!fields.isEmpty()) {
+            query.append("fields=").append(encode(String.join(",", fields)));
+        }
+        if (!expand.isEmpty()) {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append("expand=").append(encode(String.join(",", expand)));
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,104 @@
+package com.ayerma.assistant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One issue to create through {@link JiraClient#createIssuesBulk(List)}.
+ * Immutable; the {@code with...} methods return modified copies.
+ */
+public final class IssueSpec {
+    private final String projectKey;
+    private final String issueTypeName;
+    private final String summary;
+    private final String description;
+    private final String parentKey;
+    private final List<String> labels;
+    private final List<Link> links;
+
+    public IssueSpec(String projectKey, String issueTypeName, String summary, String description) {
+        this(projectKey, issueTypeName, summary, description, null, Collections.emptyList(), Collections.emptyList());
+    }
+
+    private IssueSpec(String projectKey, String issueTypeName, String summary, String description, String parentKey,
+            List<String> labels, List<Link> links) {
+        this.projectKey = projectKey;
+        this.issueTypeName = issueTypeName;
+        this.summary = summary;
+        this.description = description;
+        this.parentKey = parentKey;
+        this.labels = labels;
+        this.links = links;
+    }
+
+    /** Parent for sub-tasks, or the epic/parent issue for standard issue types. */
+    public IssueSpec withParent(String parentKey) {
+        return new IssueSpec(projectKey, issueTypeName, summary, description, parentKey, labels, links);
+    }
+
+    public IssueSpec withLabels(String... labels) {
+        List<String> merged = new ArrayList<>(this.labels);
+        merged.addAll(Arrays.asList(labels));
+        return new IssueSpec(projectKey, issueTypeName, summary, description, parentKey,
+                Collections.unmodifiableList(merged), links);
+    }
+
+    /**
+     * Links the new issue to an existing one as part of the create request,
+     * the same way {@code linkIssues(newKey, outwardKey, linkType)} would.
+     */
+    public IssueSpec withLink(String linkType, String outwardKey) {
+        List<Link> merged = new ArrayList<>(links);
+        merged.add(new Link(linkType, outwardKey));
+        return new IssueSpec(projectKey, issueTypeName, summary, description, parentKey, labels,
+                Collections.unmodifiableList(merged));
+    }
+
+    public String projectKey() {
+        return projectKey;
+    }
+
+    public String issueTypeName() {
+        return issueTypeName;
+    }
+
+    public String summary() {
+        return summary;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    public String parentKey() {
+        return parentKey;
+    }
+
+    public List<String> labels() {
+        return labels;
+    }
+
+    public List<Link> links() {
+        return links;
+    }
+
+    public static final class Link {
+        private final String linkType;
+        private final String outwardKey;
+
+        Link(String linkType, String outwardKey) {
+            this.linkType = linkType;
+            this.outwardKey = outwardKey;
+        }
+
+        public String linkType() {
+            return linkType;
+        }
+
+        public String outwardKey() {
+            return outwardKey;
+        }
+    }
+}
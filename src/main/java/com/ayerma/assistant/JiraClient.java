@@ -5,34 +5,262 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public final class JiraClient {
+    // Jira rejects bulk create requests with more issues than this.
+    private static final int BULK_CREATE_LIMIT = 50;
+    // A 400 for a full chunk lists an error per issue; the whole body must be kept to parse it.
+    private static final int BULK_ERROR_BODY_CHARS = 1_000_000;
+    // Keys per "key in (...)" search; also the page size asked for.
+    private static final int SEARCH_KEYS_PER_QUERY = 100;
+
     private final HttpJson http;
+    private final HttpJson bulkHttp;
     private final String baseUrl;
     private final String email;
     private final String apiToken;
+    private final IssueCache issueCache;
+    // Entries younger than this are served without asking Jira at all.
+    private final long cacheFreshMillis;
 
     public JiraClient(HttpJson http, String baseUrl, String email, String apiToken) {
-        this.http = http;
+        this(http, baseUrl, email, apiToken, IssueCache.fromEnv());
+    }
+
+    public JiraClient(HttpJson http, String baseUrl, String email, String apiToken, IssueCache issueCache) {
+        this.http = http.withRetryPolicy(RetryPolicy.fromEnv("JIRA"));
+        this.bulkHttp = this.http.withErrorBodyLimit(BULK_ERROR_BODY_CHARS);
         this.baseUrl = stripTrailingSlash(baseUrl);
         this.email = email;
         this.apiToken = apiToken;
+        this.issueCache = issueCache;
+        this.cacheFreshMillis = Long.parseLong(Env.optional("JIRA_CACHE_FRESH_SECONDS", "60")) * 1000L;
+        RateLimiter.configureFromEnv(URI.create(this.baseUrl).getHost(), "JIRA", "10", "20");
+        ConcurrencyLimiter.configureFromEnv(URI.create(this.baseUrl).getHost(), "JIRA", true);
     }
 
     public JsonNode getIssue(String issueKey) throws IOException, InterruptedException {
-        String encoded = URLEncoder.encode(issueKey, StandardCharsets.UTF_8);
-        URI uri = URI.create(baseUrl + "/rest/api/3/issue/" + encoded);
-        HttpRequest request = HttpJson.baseRequest(uri)
+        return HttpJson.await(getIssueAsync(issueKey));
+    }
+
+    /**
+     * Fetches only the fields (and expansions) named by the query, which keeps
+     * responses small on instances with many custom fields.
+     */
+    public JsonNode getIssue(String issueKey, IssueQuery query) throws IOException, InterruptedException {
+        return HttpJson.await(getIssueAsync(issueKey, query));
+    }
+
+    public CompletableFuture<JsonNode> getIssueAsync(String issueKey) {
+        return getIssueAsync(issueKey, IssueQuery.all());
+    }
+
+    /**
+     * Served from the issue cache when possible. Entries older than
+     * JIRA_CACHE_FRESH_SECONDS are revalidated first: with If-None-Match when
+     * Jira sent an ETag, otherwise by comparing {@code fields.updated}.
+     */
+    public CompletableFuture<JsonNode> getIssueAsync(String issueKey, IssueQuery query) {
+        String projection = query.toQueryString();
+        String cacheKey = cacheKey(issueKey, projection);
+        IssueCache.Entry cached = issueCache.get(cacheKey);
+        if (cached == null) {
+            return fetchIssueAsync(cacheKey, issueRequest(issueKey, projection));
+        }
+        if (System.currentTimeMillis() - cached.fetchedAtMillis() < cacheFreshMillis) {
+            System.out.println("[DEBUG] Jira cache hit: " + issueKey);
+            return CompletableFuture.completedFuture(cached.issue());
+        }
+        if (cached.etag() != null) {
+            // A 304 costs no body; a 200 already carries the new representation.
+            HttpRequest conditional = issueRequest(issueKey, projection).header("If-None-Match", cached.etag()).build();
+            return http.getJsonResponseAsync(conditional).thenApply(response -> {
+                if (response.isNotModified()) {
+                    System.out.println("[DEBUG] Jira cache hit (ETag revalidated): " + issueKey);
+                    issueCache.put(cacheKey, cached.revalidated());
+                    return cached.issue();
+                }
+                return store(cacheKey, response);
+            });
+        }
+        // Only fields.updated comes back: a few hundred bytes instead of the whole issue.
+        HttpRequest probe = issueRequest(issueKey, "fields=updated").build();
+        return http.getJsonAsync(probe).thenCompose(current -> {
+            String updated = current.at("/fields/updated").asText(null);
+            if (updated != null && updated.equals(cached.updated())) {
+                System.out.println("[DEBUG] Jira cache hit (updated revalidated): " + issueKey);
+                issueCache.put(cacheKey, cached.revalidated());
+                return CompletableFuture.completedFuture(cached.issue());
+            }
+            return fetchIssueAsync(cacheKey, issueRequest(issueKey, projection));
+        });
+    }
+
+    public Map<String, JsonNode> getIssues(Collection<String> issueKeys, IssueQuery query)
+            throws IOException, InterruptedException {
+        return HttpJson.await(getIssuesAsync(issueKeys, query));
+    }
+
+    /**
+     * Fetches many issues with {@code key in (...)} searches instead of one
+     * request per issue. Fresh cache entries are used as they are; the rest are
+     * searched in chunks of {@value #SEARCH_KEYS_PER_QUERY} keys, following
+     * {@code nextPageToken}, and cached.
+     *
+     * @return issues by key, in the order of {@code issueKeys}; keys that do not
+     *         exist or are not visible are left out
+     */
+    public CompletableFuture<Map<String, JsonNode>> getIssuesAsync(Collection<String> issueKeys, IssueQuery query) {
+        String projection = query.toQueryString();
+        Map<String, JsonNode> found = new ConcurrentHashMap<>();
+        List<String> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (String issueKey : new LinkedHashSet<>(issueKeys)) {
+            IssueCache.Entry cached = issueCache.get(cacheKey(issueKey, projection));
+            if (cached != null && now - cached.fetchedAtMillis() < cacheFreshMillis) {
+                found.put(issueKey, cached.issue());
+            } else {
+                missing.add(issueKey);
+            }
+        }
+        System.out.println("[DEBUG] Jira getIssues => " + found.size() + " cached, " + missing.size() + " to search");
+
+        List<CompletableFuture<Void>> searches = new ArrayList<>();
+        for (int offset = 0; offset < missing.size(); offset += SEARCH_KEYS_PER_QUERY) {
+            List<String> chunk = missing.subList(offset, Math.min(missing.size(), offset + SEARCH_KEYS_PER_QUERY));
+            searches.add(searchByKeysAsync(chunk, query, projection, found));
+        }
+        return CompletableFuture.allOf(searches.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<String, JsonNode> ordered = new LinkedHashMap<>();
+            for (String issueKey : issueKeys) {
+                JsonNode issue = found.get(issueKey);
+                if (issue != null) {
+                    ordered.put(issueKey, issue);
+                }
+            }
+            return ordered;
+        });
+    }
+
+    private CompletableFuture<Void> searchByKeysAsync(List<String> chunk, IssueQuery query, String projection,
+            Map<String, JsonNode> found) {
+        String jql = "key in (" + chunk.stream().map(key -> "\"" + key.replace("\"", "") + "\"")
+                .collect(Collectors.joining(",")) + ")";
+        return searchPageAsync(jql, query, projection, null, found).handle((done, error) -> {
+            if (error == null) {
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            if (!(cause instanceof HttpStatusException) || ((HttpStatusException) cause).statusCode() != 400) {
+                return CompletableFuture.<Void>failedFuture(cause);
+            }
+            // Jira rejects the whole JQL when one key no longer exists; fetch this chunk one by one instead.
+            System.out.println("[WARN] Jira key search rejected (" + cause.getMessage() + ") - fetching "
+                    + chunk.size() + " issues individually");
+            CompletableFuture<?>[] single = chunk.stream()
+                    .map(issueKey -> getIssueAsync(issueKey, query).handle((issue, singleError) -> {
+                        if (issue != null) {
+                            found.put(issueKey, issue);
+                        }
+                        return null;
+                    }))
+                    .toArray(CompletableFuture<?>[]::new);
+            return CompletableFuture.allOf(single);
+        }).thenCompose(next -> next);
+    }
+
+    private CompletableFuture<Void> searchPageAsync(String jql, IssueQuery query, String projection,
+            String pageToken, Map<String, JsonNode> found) {
+        StringBuilder uri = new StringBuilder(baseUrl + "/rest/api/3/search/jql?jql=")
+                .append(URLEncoder.encode(jql, StandardCharsets.UTF_8))
+                .append("&maxResults=").append(SEARCH_KEYS_PER_QUERY)
+                .append("&fields=").append(URLEncoder.encode(
+                        query.fields().isEmpty() ? "*all" : String.join(",", query.fields()), StandardCharsets.UTF_8));
+        if (!query.expansions().isEmpty()) {
+            uri.append("&expand=").append(URLEncoder.encode(String.join(",", query.expansions()),
+                    StandardCharsets.UTF_8));
+        }
+        if (pageToken != null) {
+            uri.append("&nextPageToken=").append(URLEncoder.encode(pageToken, StandardCharsets.UTF_8));
+        }
+
+        // GET rather than POST: the retry policy may repeat it, and 100 keys fit comfortably in a URL.
+        HttpRequest request = HttpJson.baseRequest(URI.create(uri.toString()))
                 .header("Authorization", basicAuth(email, apiToken))
                 .header("Accept", "application/json")
                 .GET()
                 .build();
-        return http.getJson(request);
+
+        return http.getJsonAsync(request).thenCompose(page -> {
+            long fetchedAt = System.currentTimeMillis();
+            for (JsonNode issue : page.path("issues")) {
+                String issueKey = issue.path("key").asText(null);
+                if (issueKey == null) {
+                    continue;
+                }
+                found.put(issueKey, issue);
+                issueCache.put(cacheKey(issueKey, projection), new IssueCache.Entry(issue, null,
+                        issue.at("/fields/updated").asText(null), fetchedAt));
+            }
+            String next = page.path("nextPageToken").asText(null);
+            if (next == null || page.path("isLast").asBoolean(false)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return searchPageAsync(jql, query, projection, next, found);
+        });
+    }
+
+    private CompletableFuture<JsonNode> fetchIssueAsync(String cacheKey, HttpRequest.Builder request) {
+        return http.getJsonResponseAsync(request.build()).thenApply(response -> store(cacheKey, response));
+    }
+
+    private JsonNode store(String cacheKey, JsonResponse response) {
+        JsonNode issue = response.body();
+        issueCache.put(cacheKey, new IssueCache.Entry(issue,
+                response.headers().firstValue("ETag").orElse(null),
+                issue.at("/fields/updated").asText(null),
+                System.currentTimeMillis()));
+        return issue;
+    }
+
+    private HttpRequest.Builder issueRequest(String issueKey, String query) {
+        String encoded = URLEncoder.encode(issueKey, StandardCharsets.UTF_8);
+        URI uri = URI.create(baseUrl + "/rest/api/3/issue/" + encoded + (query != null ? "?" + query : ""));
+        return HttpJson.baseRequest(uri)
+                .header("Authorization", basicAuth(email, apiToken))
+                .header("Accept", "application/json")
+                .GET();
+    }
+
+    private static String cacheKey(String issueKey, String projection) {
+        // Each projection is cached separately; a narrow one must not satisfy a wider read.
+        return projection == null ? issueKey : issueKey + "?" + projection;
+    }
+
+    /** Issue key part of an {@link IssueCache} key. */
+    static String issueKeyOf(String cacheKey) {
+        int query = cacheKey.indexOf('?');
+        return query < 0 ? cacheKey : cacheKey.substring(0, query);
     }
 
     public String createIssue(String projectKey, String issueTypeName, String summary, String description)
@@ -43,43 +271,16 @@ public final class JiraClient {
     public String createIssueWithLabels(String projectKey, String issueTypeName, String summary, String description,
             String... customLabels)
             throws IOException, InterruptedException {
-        URI uri = URI.create(baseUrl + "/rest/api/3/issue");
+        return HttpJson.await(createIssueAsync(projectKey, issueTypeName, summary, description, customLabels));
+    }
 
+    public CompletableFuture<String> createIssueAsync(String projectKey, String issueTypeName, String summary,
+            String description, String... customLabels) {
         System.out.println("[DEBUG] Jira createIssue => project=" + projectKey + ", type=" + issueTypeName
                 + ", summary=" + summary);
 
-        ObjectNode fields = HttpJson.MAPPER.createObjectNode();
-        fields.putObject("project").put("key", projectKey);
-        fields.putObject("issuetype").put("name", issueTypeName);
-        fields.put("summary", summary);
-
-        if (description != null && !description.isBlank()) {
-            fields.set("description", toAdf(description));
-        }
-
-        // Add custom labels
-        ArrayNode labels = HttpJson.MAPPER.createArrayNode();
-        for (String label : customLabels) {
-            labels.add(label);
-        }
-        fields.set("labels", labels);
-
-        ObjectNode payload = HttpJson.MAPPER.createObjectNode();
-        payload.set("fields", fields);
-
-        HttpRequest request = HttpJson.baseRequest(uri)
-                .header("Authorization", basicAuth(email, apiToken))
-                .header("Accept", "application/json")
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
-                .build();
-
-        JsonNode response = http.postJson(request);
-        JsonNode keyNode = response.get("key");
-        if (keyNode == null || keyNode.isNull()) {
-            throw new IOException("Jira issue creation response missing key");
-        }
-        return keyNode.asText();
+        IssueSpec spec = new IssueSpec(projectKey, issueTypeName, summary, description).withLabels(customLabels);
+        return submitIssueAsync(spec, "Jira issue creation response missing key");
     }
 
     public String createIssueWithParent(String projectKey, String issueTypeName, String parentKey, String summary,
@@ -89,31 +290,74 @@ public final class JiraClient {
 
     public String createIssueWithParentAndLabels(String projectKey, String issueTypeName, String parentKey,
             String summary, String description, String... customLabels) throws IOException, InterruptedException {
-        URI uri = URI.create(baseUrl + "/rest/api/3/issue");
-
         System.out.println("[DEBUG] Jira createIssueWithParentAndLabels => project=" + projectKey + ", type="
                 + issueTypeName + ", parent=" + parentKey + ", summary=" + summary + ", labels="
                 + String.join(", ", customLabels));
 
-        ObjectNode fields = HttpJson.MAPPER.createObjectNode();
-        fields.putObject("project").put("key", projectKey);
-        fields.putObject("issuetype").put("name", issueTypeName);
-        fields.putObject("parent").put("key", parentKey);
-        fields.put("summary", summary);
+        IssueSpec spec = new IssueSpec(projectKey, issueTypeName, summary, description)
+                .withParent(parentKey)
+                .withLabels(customLabels);
+        return HttpJson.await(submitIssueAsync(spec, "Jira issue creation response missing key"));
+    }
 
-        if (description != null && !description.isBlank()) {
-            fields.set("description", toAdf(description));
-        }
+    public String createSubtask(String projectKey, String issueTypeName, String parentKey, String summary,
+            String description) throws IOException, InterruptedException {
+        System.out.println("[DEBUG] Jira createSubtask => project=" + projectKey + ", type=" + issueTypeName
+                + ", parent=" + parentKey + ", summary=" + summary);
 
-        // Add custom labels
-        ArrayNode labels = HttpJson.MAPPER.createArrayNode();
-        for (String label : customLabels) {
-            labels.add(label);
+        IssueSpec spec = new IssueSpec(projectKey, issueTypeName, summary, description).withParent(parentKey);
+        return HttpJson.await(submitIssueAsync(spec, "Jira subtask creation response missing key"));
+    }
+
+    public String createIssue(IssueSpec spec) throws IOException, InterruptedException {
+        return HttpJson.await(createIssueAsync(spec));
+    }
+
+    /**
+     * Creates one issue with everything the spec carries, including links, in
+     * a single request: no separate linkIssues call, and no unlinked issue left
+     * behind when that call would have failed.
+     */
+    public CompletableFuture<String> createIssueAsync(IssueSpec spec) {
+        System.out.println("[DEBUG] Jira createIssue => project=" + spec.projectKey() + ", type="
+                + spec.issueTypeName() + ", summary=" + spec.summary() + (spec.links().isEmpty() ? ""
+                        : ", links=" + spec.links().size()));
+        return submitIssueAsync(spec, "Jira issue creation response missing key");
+    }
+
+    public BulkCreateResult createIssuesBulk(List<IssueSpec> specs) throws IOException, InterruptedException {
+        return HttpJson.await(createIssuesBulkAsync(specs));
+    }
+
+    /**
+     * Creates many issues with {@code /rest/api/3/issue/bulk}, in chunks of
+     * Jira's 50-issue limit sent concurrently. Per-issue errors are reported
+     * in the result rather than thrown, because Jira still creates the rest;
+     * only a failure of the whole call completes exceptionally.
+     */
+    public CompletableFuture<BulkCreateResult> createIssuesBulkAsync(List<IssueSpec> specs) {
+        List<String> keys = new ArrayList<>(Collections.nCopies(specs.size(), (String) null));
+        List<String> errors = new ArrayList<>(Collections.nCopies(specs.size(), (String) null));
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int offset = 0; offset < specs.size(); offset += BULK_CREATE_LIMIT) {
+            List<IssueSpec> chunk = specs.subList(offset, Math.min(specs.size(), offset + BULK_CREATE_LIMIT));
+            chunks.add(submitBulkChunkAsync(chunk, offset, keys, errors));
         }
-        fields.set("labels", labels);
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> new BulkCreateResult(keys, errors));
+    }
+
+    private CompletableFuture<Void> submitBulkChunkAsync(List<IssueSpec> chunk, int offset, List<String> keys,
+            List<String> errors) {
+        URI uri = URI.create(baseUrl + "/rest/api/3/issue/bulk");
+
+        System.out.println("[DEBUG] Jira createIssuesBulk => " + chunk.size() + " issues (from #" + offset + ")");
 
         ObjectNode payload = HttpJson.MAPPER.createObjectNode();
-        payload.set("fields", fields);
+        ArrayNode updates = payload.putArray("issueUpdates");
+        for (IssueSpec spec : chunk) {
+            updates.add(issuePayload(spec));
+        }
 
         HttpRequest request = HttpJson.baseRequest(uri)
                 .header("Authorization", basicAuth(email, apiToken))
@@ -122,47 +366,151 @@ public final class JiraClient {
                 .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
                 .build();
 
-        JsonNode response = http.postJson(request);
-        JsonNode keyNode = response.get("key");
-        if (keyNode == null || keyNode.isNull()) {
-            throw new IOException("Jira issue creation response missing key");
+        return bulkHttp.postJsonAsync(request).handle((response, error) -> {
+            if (error == null) {
+                recordBulkChunk(response, chunk, offset, keys, errors);
+                return null;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            if (!(cause instanceof HttpStatusException) || ((HttpStatusException) cause).statusCode() != 400) {
+                throw new CompletionException(cause);
+            }
+            // Jira answers 400 when no issue in the chunk could be created; the body has the usual per-issue errors.
+            JsonNode body = parseQuietly(((HttpStatusException) cause).body());
+            if (body != null) {
+                recordBulkChunk(body, chunk, offset, keys, errors);
+            } else {
+                synchronized (errors) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        errors.set(offset + i, cause.getMessage());
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private void recordBulkChunk(JsonNode body, List<IssueSpec> chunk, int offset, List<String> keys,
+            List<String> errors) {
+        boolean[] failed = new boolean[chunk.size()];
+        for (JsonNode error : body.path("errors")) {
+            int element = error.path("failedElementNumber").asInt(-1);
+            if (element < 0 || element >= chunk.size()) {
+                continue;
+            }
+            failed[element] = true;
+            synchronized (errors) {
+                errors.set(offset + element, describeElementError(error));
+            }
+        }
+
+        // "issues" lists the created issues in submission order, skipping the failed elements.
+        Iterator<JsonNode> created = body.path("issues").iterator();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (failed[i]) {
+                continue;
+            }
+            IssueSpec spec = chunk.get(i);
+            if (!created.hasNext()) {
+                synchronized (errors) {
+                    errors.set(offset + i, "Jira bulk response did not report this issue");
+                }
+                continue;
+            }
+            String key = created.next().path("key").asText(null);
+            synchronized (keys) {
+                keys.set(offset + i, key);
+            }
+            invalidateRelatedIssues(spec);
         }
-        return keyNode.asText();
     }
 
-    public String createSubtask(String projectKey, String issueTypeName, String parentKey, String summary,
-            String description) throws IOException, InterruptedException {
-        URI uri = URI.create(baseUrl + "/rest/api/3/issue");
+    private static String describeElementError(JsonNode error) {
+        List<String> messages = new ArrayList<>();
+        JsonNode elementErrors = error.path("elementErrors");
+        for (JsonNode message : elementErrors.path("errorMessages")) {
+            messages.add(message.asText());
+        }
+        elementErrors.path("errors").fields()
+                .forEachRemaining(field -> messages.add(field.getKey() + ": " + field.getValue().asText()));
+        String status = error.hasNonNull("status") ? "HTTP " + error.get("status").asText() + " " : "";
+        return status + (messages.isEmpty() ? error.toString() : String.join("; ", messages));
+    }
 
-        System.out.println("[DEBUG] Jira createSubtask => project=" + projectKey + ", type=" + issueTypeName
-                + ", parent=" + parentKey + ", summary=" + summary);
+    private static JsonNode parseQuietly(String json) {
+        try {
+            JsonNode node = HttpJson.MAPPER.readTree(json);
+            return node != null && node.has("errors") ? node : null;
+        } catch (IOException e) {
+            // Truncated or not JSON: report the call as a whole.
+            return null;
+        }
+    }
 
+    /** Create payload for one issue: its fields plus any links to add. */
+    private static ObjectNode issuePayload(IssueSpec spec) {
         ObjectNode fields = HttpJson.MAPPER.createObjectNode();
-        fields.putObject("project").put("key", projectKey);
-        fields.putObject("issuetype").put("name", issueTypeName);
-        fields.putObject("parent").put("key", parentKey);
-        fields.put("summary", summary);
+        fields.putObject("project").put("key", spec.projectKey());
+        fields.putObject("issuetype").put("name", spec.issueTypeName());
+        if (spec.parentKey() != null) {
+            fields.putObject("parent").put("key", spec.parentKey());
+        }
+        fields.put("summary", spec.summary());
+
+        if (spec.description() != null && !spec.description().isBlank()) {
+            fields.set("description", toAdf(spec.description()));
+        }
 
-        if (description != null && !description.isBlank()) {
-            fields.set("description", toAdf(description));
+        if (!spec.labels().isEmpty()) {
+            ArrayNode labels = fields.putArray("labels");
+            spec.labels().forEach(labels::add);
         }
 
         ObjectNode payload = HttpJson.MAPPER.createObjectNode();
         payload.set("fields", fields);
 
+        if (!spec.links().isEmpty()) {
+            // Same direction as linkIssues(newKey, target, type): the new issue is the inward side.
+            ArrayNode issueLinks = payload.putObject("update").putArray("issuelinks");
+            for (IssueSpec.Link link : spec.links()) {
+                ObjectNode add = issueLinks.addObject().putObject("add");
+                add.putObject("type").put("name", link.linkType());
+                add.putObject("outwardIssue").put("key", link.outwardKey());
+            }
+        }
+        return payload;
+    }
+
+    private CompletableFuture<String> submitIssueAsync(IssueSpec spec, String missingKeyMessage) {
+        URI uri = URI.create(baseUrl + "/rest/api/3/issue");
+
         HttpRequest request = HttpJson.baseRequest(uri)
                 .header("Authorization", basicAuth(email, apiToken))
                 .header("Accept", "application/json")
                 .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
+                .POST(HttpRequest.BodyPublishers.ofString(issuePayload(spec).toString()))
                 .build();
 
-        JsonNode response = http.postJson(request);
-        JsonNode keyNode = response.get("key");
-        if (keyNode == null || keyNode.isNull()) {
-            throw new IOException("Jira subtask creation response missing key");
+        return http.postJsonAsync(request).thenApply(response -> {
+            invalidateRelatedIssues(spec);
+            JsonNode keyNode = response.get("key");
+            if (keyNode == null || keyNode.isNull()) {
+                throw new UncheckedIOException(new IOException(missingKeyMessage));
+            }
+            return keyNode.asText();
+        });
+    }
+
+    /** A new issue changes its parent's subtask list and its link targets' issuelinks. */
+    private void invalidateRelatedIssues(IssueSpec spec) {
+        if (spec.parentKey() != null) {
+            issueCache.invalidate(spec.parentKey());
+        }
+        for (IssueSpec.Link link : spec.links()) {
+            issueCache.invalidate(link.outwardKey());
         }
-        return keyNode.asText();
     }
 
     public void linkIssues(String inwardKey, String outwardKey, String linkType)
@@ -184,6 +532,8 @@ public final class JiraClient {
                 .build();
 
         http.postJson(request);
+        issueCache.invalidate(inwardKey);
+        issueCache.invalidate(outwardKey);
     }
 
     private static String basicAuth(String email, String token) {
@@ -202,6 +552,10 @@ public final class JiraClient {
     }
 
     public void addComment(String issueKey, String comment) throws IOException, InterruptedException {
+        HttpJson.await(addCommentAsync(issueKey, comment));
+    }
+
+    public CompletableFuture<Void> addCommentAsync(String issueKey, String comment) {
         String encoded = URLEncoder.encode(issueKey, StandardCharsets.UTF_8);
         URI uri = URI.create(baseUrl + "/rest/api/3/issue/" + encoded + "/comment");
 
@@ -210,16 +564,17 @@ public final class JiraClient {
         ObjectNode body = HttpJson.MAPPER.createObjectNode();
         body.set("body", toAdf(comment));
 
-        String payload = HttpJson.MAPPER.writeValueAsString(body);
         HttpRequest request = HttpJson.baseRequest(uri)
                 .header("Authorization", basicAuth(email, apiToken))
                 .header("Content-Type", "application/json")
                 .header("Accept", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
                 .build();
 
-        JsonNode response = http.postJson(request);
-        System.out.println("[SUCCESS] Added comment to " + issueKey);
+        return http.postJsonAsync(request).thenAccept(response -> {
+            issueCache.invalidate(issueKey);
+            System.out.println("[SUCCESS] Added comment to " + issueKey);
+        });
     }
 
     public void addLabels(String issueKey, String... labels) throws IOException, InterruptedException {
@@ -248,6 +603,7 @@ public final class JiraClient {
                 .build();
 
         http.send(request);
+        issueCache.invalidate(issueKey);
         System.out.println("[SUCCESS] Added labels to " + issueKey);
     }
 
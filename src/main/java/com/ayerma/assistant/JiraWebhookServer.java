@@ -11,14 +11,28 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Minimal webhook receiver intended to be deployed somewhere reachable by Jira.
  *
  * Flow:
  * - Jira Webhook -> POST /jira-webhook with issue payload
- * - Server extracts issue key
- * - Server calls GitHub repository_dispatch to trigger a GitHub Action
+ * - Server extracts issue key, queues it (and journals it, if
+ *   WEBHOOK_JOURNAL_DIR is set) and answers 202 right away
+ * - A background worker calls GitHub repository_dispatch to trigger a GitHub Action
+ *
+ * Requests are handled on WEBHOOK_EXECUTOR threads rather than the server's
+ * single dispatcher thread, so one slow GitHub call does not hold up the
+ * other webhooks.
  */
 public final class JiraWebhookServer {
     public static void main(String[] args) throws Exception {
@@ -30,11 +44,14 @@ public final class JiraWebhookServer {
         String ghToken = Env.required("GITHUB_TOKEN");
         String eventType = Env.optional("GITHUB_DISPATCH_EVENT", "jira_issue_updated");
 
-        HttpJson http = new HttpJson();
+        HttpJson http = HttpJson.shared();
         GitHubDispatchClient dispatch = new GitHubDispatchClient(http, ghOwner, ghRepo, ghToken);
+        WebhookDispatcher dispatcher = WebhookDispatcher.fromEnv(dispatch, eventType, WebhookJournal.fromEnv());
 
-        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
-        server.createContext("/jira-webhook", new JiraWebhookHandler(sharedSecret, dispatch, eventType));
+        int backlog = Integer.parseInt(Env.optional("WEBHOOK_BACKLOG", "128"));
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), backlog);
+        server.setExecutor(webhookExecutor());
+        server.createContext("/jira-webhook", new JiraWebhookHandler(sharedSecret, dispatcher));
         server.createContext("/health", exchange -> {
             byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
             exchange.sendResponseHeaders(200, body.length);
@@ -44,18 +61,78 @@ public final class JiraWebhookServer {
         });
         server.start();
 
+        Duration drainTimeout = Duration.ofSeconds(Long.parseLong(Env.optional("WEBHOOK_DRAIN_SECONDS", "10")));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            try {
+                dispatcher.shutdown(drainTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "jira-webhook-shutdown"));
+
         System.out.println("JiraWebhookServer listening on port " + port);
     }
 
+    /**
+     * WEBHOOK_EXECUTOR selects the request executor:
+     * - virtual: one virtual thread per request (Java 21+)
+     * - pool: WEBHOOK_THREADS threads with a queue of WEBHOOK_QUEUE_SIZE
+     * - auto (default): virtual when the runtime has it, otherwise pool
+     */
+    private static ExecutorService webhookExecutor() {
+        String mode = Env.optional("WEBHOOK_EXECUTOR", "auto").trim().toLowerCase(Locale.ROOT);
+        if (!mode.equals("auto") && !mode.equals("virtual") && !mode.equals("pool")) {
+            throw new IllegalStateException("WEBHOOK_EXECUTOR must be auto, virtual or pool, got: " + mode);
+        }
+        if (!mode.equals("pool")) {
+            ExecutorService virtual = virtualThreadExecutor();
+            if (virtual != null) {
+                System.out.println("[INFO] Handling webhooks on virtual threads");
+                return virtual;
+            }
+            if (mode.equals("virtual")) {
+                throw new IllegalStateException("WEBHOOK_EXECUTOR=virtual needs Java 21 or later, running on "
+                        + Runtime.version());
+            }
+        }
+
+        int threads = Integer.parseInt(Env.optional("WEBHOOK_THREADS", "16"));
+        int queueSize = Integer.parseInt(Env.optional("WEBHOOK_QUEUE_SIZE", "64"));
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> new Thread(runnable, "jira-webhook-" + threadCount.incrementAndGet());
+        // When threads and queue are full, the dispatcher thread runs the request itself.
+        // It stops accepting connections meanwhile, so the excess waits in the socket backlog.
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory, (runnable, executor) -> {
+                    System.out.println("[WARN] Webhook executor saturated (" + threads + " threads, " + queueSize
+                            + " queued) - handling request on the dispatcher thread");
+                    if (!executor.isShutdown()) {
+                        runnable.run();
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        System.out.println("[INFO] Handling webhooks on " + threads + " threads, queue of " + queueSize);
+        return pool;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() exists from Java 21; the build targets 17.
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
     private static final class JiraWebhookHandler implements HttpHandler {
         private final String sharedSecret;
-        private final GitHubDispatchClient dispatch;
-        private final String eventType;
+        private final WebhookDispatcher dispatcher;
 
-        private JiraWebhookHandler(String sharedSecret, GitHubDispatchClient dispatch, String eventType) {
+        private JiraWebhookHandler(String sharedSecret, WebhookDispatcher dispatcher) {
             this.sharedSecret = sharedSecret;
-            this.dispatch = dispatch;
-            this.eventType = eventType;
+            this.dispatcher = dispatcher;
         }
 
         @Override
@@ -87,14 +164,14 @@ public final class JiraWebhookServer {
                     return;
                 }
 
-                try {
-                    dispatch.repositoryDispatch(eventType, issueKey);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new IOException("Interrupted", e);
+                if (!dispatcher.submit(issueKey)) {
+                    // Jira delivers the webhook again later.
+                    exchange.getResponseHeaders().add("Retry-After", "30");
+                    send(exchange, 503, "Dispatch queue full (" + dispatcher.pending() + " pending), retry later");
+                    return;
                 }
 
-                send(exchange, 202, "Dispatched GitHub workflow for " + issueKey);
+                send(exchange, 202, "Queued GitHub workflow dispatch for " + issueKey);
             } catch (Exception e) {
                 send(exchange, 500, "Error: " + e.getMessage());
             }
@@ -0,0 +1,36 @@
+package com.ayerma.assistant;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.http.HttpHeaders;
+
+/**
+ * Parsed JSON body together with the status and headers it came with.
+ */
+public final class JsonResponse {
+    private final int statusCode;
+    private final HttpHeaders headers;
+    private final JsonNode body;
+
+    public JsonResponse(int statusCode, HttpHeaders headers, JsonNode body) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    public JsonNode body() {
+        return body;
+    }
+
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+}
@@ -0,0 +1,36 @@
+package com.ayerma.assistant;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory {@link IssueCache} bounded by entry count, evicting the least
+ * recently used issue.
+ */
+public final class LruIssueCache implements IssueCache {
+    private final Map<String, Entry> entries;
+
+    public LruIssueCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Entry get(String cacheKey) {
+        return entries.get(cacheKey);
+    }
+
+    @Override
+    public synchronized void put(String cacheKey, Entry entry) {
+        entries.put(cacheKey, entry);
+    }
+
+    @Override
+    public synchronized void invalidate(String issueKey) {
+        entries.keySet().removeIf(cacheKey -> JiraClient.issueKeyOf(cacheKey).equals(issueKey));
+    }
+}
@@ -0,0 +1,174 @@
+package com.ayerma.assistant;
+
+import com.ayerma.assistant.client.models.ModelCapabilities;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Assembles a user prompt from sections and keeps it inside the model's
+ * context window.
+ *
+ * Each section has a priority. When the estimated size exceeds the budget,
+ * the most expendable sections are cut first (later sections before earlier
+ * ones at the same priority): the head of a section is kept and the rest
+ * replaced by a marker, or the whole section is replaced when too little of
+ * it would remain. {@link #REQUIRED} sections are never touched.
+ *
+ * Configuration:
+ * - PROMPT_CONTEXT_TOKENS: context window override (default: per model, see {@link #contextTokens(String)})
+ * - PROMPT_RESERVED_OUTPUT_TOKENS: room left for the answer (default 4096)
+ */
+public final class PromptBudgeter {
+    public static final int REQUIRED = 0;
+    public static final int IMPORTANT = 1;
+    public static final int CONTEXT = 2;
+    public static final int EXPENDABLE = 3;
+
+    // Less than this is not worth keeping as a truncated section.
+    private static final int MIN_SECTION_TOKENS = 48;
+
+    private final List<Section> sections = new ArrayList<>();
+
+    public PromptBudgeter add(String text) {
+        return add(null, REQUIRED, text);
+    }
+
+    public PromptBudgeter add(String name, int priority, String text) {
+        if (text != null && !text.isEmpty()) {
+            sections.add(new Section(name, priority, text));
+        }
+        return this;
+    }
+
+    /**
+     * Context window of the model (see {@link ModelCapabilities}).
+     * PROMPT_CONTEXT_TOKENS overrides it, e.g. for tiers that cap input lower.
+     */
+    public static int contextTokens(String model) {
+        String override = Env.optional("PROMPT_CONTEXT_TOKENS", null);
+        if (override != null) {
+            return Integer.parseInt(override);
+        }
+        return ModelCapabilities.of(model).contextTokens();
+    }
+
+    /**
+     * Tokens left for the user prompt once the system prompt and the reserved
+     * output are accounted for.
+     */
+    public static int availableTokens(String model, String systemPrompt) {
+        int context = contextTokens(model);
+        int reserved = Integer.parseInt(Env.optional("PROMPT_RESERVED_OUTPUT_TOKENS", "4096"));
+        int system = TokenEstimator.estimate(systemPrompt);
+        int available = Math.max(0, context - reserved - system);
+        System.out.println("[INFO] Prompt budget: ~" + system + " system tokens, " + available
+                + " left for the user prompt (context " + context + ", reserved output " + reserved + ")");
+        if (available == 0) {
+            System.out.println("[WARN] System prompt alone exceeds the context window of " + model);
+        }
+        return available;
+    }
+
+    public String render(int maxTokens) {
+        int total = 0;
+        for (Section section : sections) {
+            total += section.tokens;
+        }
+        if (total > maxTokens) {
+            total = trim(total, maxTokens);
+        }
+
+        StringBuilder prompt = new StringBuilder();
+        for (Section section : sections) {
+            prompt.append(section.text);
+        }
+        System.out.println("[INFO] User prompt: ~" + total + " tokens (" + prompt.length() + " chars)");
+        return prompt.toString();
+    }
+
+    private int trim(int total, int maxTokens) {
+        List<Section> byExpendability = new ArrayList<>();
+        for (Section section : sections) {
+            if (section.priority > REQUIRED) {
+                byExpendability.add(section);
+            }
+        }
+        // Highest priority value first; among equals, the section added last.
+        byExpendability.sort(Comparator.comparingInt((Section s) -> s.priority)
+                .thenComparingInt(sections::indexOf).reversed());
+
+        List<String> trimmed = new ArrayList<>();
+        int over = total - maxTokens;
+        for (Section section : byExpendability) {
+            if (over <= 0) {
+                break;
+            }
+            int before = section.tokens;
+            int keep = before - over;
+            if (keep < MIN_SECTION_TOKENS) {
+                section.replace("[" + section.label() + " omitted to fit the model context]\n\n");
+            } else {
+                String marker = "\n[... " + section.label() + " trimmed to fit the model context]\n\n";
+                int target = keep - TokenEstimator.estimate(marker);
+                section.replace(head(section.text, target) + marker);
+            }
+            over -= before - section.tokens;
+            total -= before - section.tokens;
+            trimmed.add(section.label());
+        }
+
+        System.out.println("[WARN] Prompt exceeded its budget of " + maxTokens + " tokens - trimmed: "
+                + String.join(", ", trimmed));
+        if (over > 0) {
+            System.out.println("[WARN] Required prompt sections alone exceed the budget by ~" + over + " tokens");
+        }
+        return total;
+    }
+
+    /** Longest prefix within the token target, cut at a line or word boundary when one is close. */
+    private static String head(String text, int targetTokens) {
+        int low = 0;
+        int high = text.length();
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (TokenEstimator.estimate(text.substring(0, mid)) <= targetTokens) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int cut = text.lastIndexOf('\n', low);
+        if (cut < low * 0.8) {
+            cut = text.lastIndexOf(' ', low);
+        }
+        if (cut < low * 0.8) {
+            cut = low;
+        }
+        return text.substring(0, Math.max(0, cut));
+    }
+
+    private static final class Section {
+        private final String name;
+        private final int priority;
+        private String text;
+        private int tokens;
+
+        private Section(String name, int priority, String text) {
+            this.name = name;
+            this.priority = priority;
+            this.text = text;
+            this.tokens = TokenEstimator.estimate(text);
+        }
+
+        private void replace(String newText) {
+            text = newText;
+            tokens = TokenEstimator.estimate(newText);
+        }
+
+        private String label() {
+            return name != null ? name : "section";
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.ayerma.assistant;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client-side token bucket for one host, applied by {@link HttpJson} before
+ * each request is sent.
+ *
+ * Two buckets are kept: one for requests (rate plus burst) and an optional one
+ * for model tokens (a per-minute budget). Callers reserve capacity and are told
+ * how long to wait, so requests are spread out instead of bursting into a
+ * server-side 429. A 429 halves the request rate; each success recovers a
+ * small step until the configured rate is reached again.
+ */
+public final class RateLimiter {
+    private static final Map<String, RateLimiter> BY_HOST = new ConcurrentHashMap<>();
+    private static final double MIN_RATE_FRACTION = 0.1;
+
+    private final String host;
+    private final double configuredRate;
+    private final double burst;
+    private final double tokensPerMinute;
+
+    private double rate;
+    private double requestPermits;
+    private double tokenPermits;
+    private long lastRefill;
+
+    RateLimiter(String host, double requestsPerSecond, double burst, double tokensPerMinute) {
+        this.host = host;
+        this.configuredRate = requestsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokensPerMinute = tokensPerMinute;
+        this.rate = requestsPerSecond;
+        this.requestPermits = this.burst;
+        this.tokenPermits = tokensPerMinute;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Installs limits for a host. A rate of 0 leaves requests unthrottled and a
+     * token budget of 0 disables token accounting.
+     */
+    public static void configure(String host, double requestsPerSecond, double burst, double tokensPerMinute) {
+        if (host == null) {
+            return;
+        }
+        if (requestsPerSecond <= 0 && tokensPerMinute <= 0) {
+            BY_HOST.remove(host);
+            return;
+        }
+        RateLimiter existing = BY_HOST.get(host);
+        if (existing != null && existing.configuredRate == requestsPerSecond && existing.burst == Math.max(1, burst)
+                && existing.tokensPerMinute == tokensPerMinute) {
+            // Same limits from another client instance: keep the learned state.
+            return;
+        }
+        BY_HOST.put(host, new RateLimiter(host, requestsPerSecond, burst, tokensPerMinute));
+        System.out.println("[DEBUG] Rate limit for " + host + " => " + (requestsPerSecond > 0
+                ? requestsPerSecond + " req/s (burst " + burst + ")"
+                : "unlimited requests")
+                + (tokensPerMinute > 0 ? ", " + (long) tokensPerMinute + " tokens/min" : ""));
+    }
+
+    /**
+     * Reads {@code <PREFIX>_RATE_LIMIT_RPS}, {@code <PREFIX>_RATE_LIMIT_BURST}
+     * and {@code <PREFIX>_TOKENS_PER_MINUTE} and installs them for the host.
+     */
+    public static void configureFromEnv(String host, String prefix, String defaultRps, String defaultBurst) {
+        configure(host,
+                Double.parseDouble(Env.optional(prefix + "_RATE_LIMIT_RPS", defaultRps)),
+                Double.parseDouble(Env.optional(prefix + "_RATE_LIMIT_BURST", defaultBurst)),
+                Double.parseDouble(Env.optional(prefix + "_TOKENS_PER_MINUTE", "0")));
+    }
+
+    /**
+     * @return the limiter for the host, or null when the host is not limited
+     */
+    public static RateLimiter forHost(String host) {
+        return host == null ? null : BY_HOST.get(host);
+    }
+
+    /**
+     * Reserves one request plus {@code tokenCost} model tokens.
+     *
+     * @return nanoseconds the caller has to wait before sending
+     */
+    public synchronized long reserve(long tokenCost) {
+        refill();
+        long waitNanos = 0;
+
+        if (rate > 0) {
+            requestPermits -= 1;
+            if (requestPermits < 0) {
+                waitNanos = (long) (-requestPermits / rate * 1_000_000_000L);
+            }
+        }
+
+        if (tokensPerMinute > 0 && tokenCost > 0) {
+            // A request larger than the whole budget is charged the full budget so it can still go out.
+            tokenPermits -= Math.min(tokenCost, tokensPerMinute);
+            if (tokenPermits < 0) {
+                long tokenWait = (long) (-tokenPermits / tokensPerMinute * 60_000_000_000L);
+                waitNanos = Math.max(waitNanos, tokenWait);
+            }
+        }
+        return waitNanos;
+    }
+
+    /** Server answered 429: halve the request rate. */
+    public synchronized void onThrottled() {
+        if (configuredRate <= 0) {
+            return;
+        }
+        refill();
+        double reduced = Math.max(configuredRate * MIN_RATE_FRACTION, rate / 2);
+        if (reduced < rate) {
+            System.out.println("[WARN] Throttled by " + host + " - lowering client rate to "
+                    + String.format("%.2f", reduced) + " req/s");
+        }
+        rate = reduced;
+        // Drop any saved-up burst as well.
+        requestPermits = Math.min(requestPermits, 0);
+    }
+
+    /** Successful response: creep back toward the configured rate. */
+    public synchronized void onSuccess() {
+        if (configuredRate <= 0 || rate >= configuredRate) {
+            return;
+        }
+        refill();
+        rate = Math.min(configuredRate, rate + configuredRate * 0.05);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastRefill) / 1_000_000_000.0;
+        lastRefill = now;
+        if (rate > 0) {
+            requestPermits = Math.min(burst, requestPermits + elapsedSeconds * rate);
+        }
+        if (tokensPerMinute > 0) {
+            tokenPermits = Math.min(tokensPerMinute, tokenPermits + elapsedSeconds / 60.0 * tokensPerMinute);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.ayerma.assistant;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry rules applied by {@link HttpJson} to a single endpoint.
+ *
+ * Idempotent methods (GET, PUT, DELETE, ...) are retried on transport errors
+ * and on 408/425/429/5xx. POST and PATCH are only retried when the request
+ * provably did not run: the connection could not be opened, or the server
+ * rejected it with 429 (or 503 with Retry-After). Endpoints whose POSTs have
+ * no side effects, such as chat completions, can opt in to full retries.
+ */
+public final class RetryPolicy {
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE");
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(408, 425, 429, 500, 502, 503, 504);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long maxServerWaitMillis;
+    private final boolean retryNonIdempotent;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long maxServerWaitMillis,
+            boolean retryNonIdempotent) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(0, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+        this.maxServerWaitMillis = Math.max(0, maxServerWaitMillis);
+        this.retryNonIdempotent = retryNonIdempotent;
+    }
+
+    public static RetryPolicy none() {
+        return new RetryPolicy(1, 0, 0, 0, false);
+    }
+
+    public static RetryPolicy defaults() {
+        return new RetryPolicy(4, 500, 30_000, 120_000, false);
+    }
+
+    /**
+     * Reads {@code <PREFIX>_RETRY_MAX_ATTEMPTS}, {@code <PREFIX>_RETRY_BASE_DELAY_MS},
+     * {@code <PREFIX>_RETRY_MAX_DELAY_MS} and {@code <PREFIX>_RETRY_MAX_WAIT_SECONDS},
+     * falling back to {@link #defaults()}.
+     */
+    public static RetryPolicy fromEnv(String prefix) {
+        return fromEnv(prefix, defaults());
+    }
+
+    /** Like {@link #fromEnv(String)}, falling back to {@code defaults}. */
+    public static RetryPolicy fromEnv(String prefix, RetryPolicy defaults) {
+        return new RetryPolicy(
+                Integer.parseInt(Env.optional(prefix + "_RETRY_MAX_ATTEMPTS", String.valueOf(defaults.maxAttempts))),
+                Long.parseLong(Env.optional(prefix + "_RETRY_BASE_DELAY_MS",
+                        String.valueOf(defaults.baseDelayMillis))),
+                Long.parseLong(Env.optional(prefix + "_RETRY_MAX_DELAY_MS", String.valueOf(defaults.maxDelayMillis))),
+                Long.parseLong(Env.optional(prefix + "_RETRY_MAX_WAIT_SECONDS",
+                        String.valueOf(defaults.maxServerWaitMillis / 1000))) * 1000L,
+                defaults.retryNonIdempotent);
+    }
+
+    /**
+     * Returns a copy that also retries POST/PATCH. Only for endpoints where
+     * repeating a request cannot create duplicates.
+     */
+    public RetryPolicy withNonIdempotentRetries(boolean enabled) {
+        return new RetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis, maxServerWaitMillis, enabled);
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Decides whether a failed attempt should be repeated.
+     *
+     * @param method  HTTP method of the request
+     * @param attempt 1-based number of the attempt that just failed
+     * @param failure transport error or {@link HttpStatusException}
+     * @return the delay before the next attempt, or empty to give up
+     */
+    public Optional<Duration> nextDelay(String method, int attempt, Throwable failure) {
+        if (attempt >= maxAttempts || !isRetryable(method, failure)) {
+            return Optional.empty();
+        }
+
+        if (failure instanceof HttpStatusException) {
+            Duration serverWait = serverRequestedWait(((HttpStatusException) failure).headers());
+            if (serverWait != null) {
+                if (serverWait.toMillis() > maxServerWaitMillis) {
+                    // Waiting longer than allowed only delays the inevitable failure.
+                    return Optional.empty();
+                }
+                // A little jitter keeps parallel callers from returning in lockstep.
+                return Optional.of(serverWait.plusMillis(ThreadLocalRandom.current().nextLong(250)));
+            }
+        }
+
+        long exponential = baseDelayMillis << Math.min(attempt - 1, 20);
+        long capped = Math.min(maxDelayMillis, exponential);
+        // "Equal jitter": half fixed, half random.
+        long half = capped / 2;
+        return Optional.of(Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1)));
+    }
+
+    private boolean isRetryable(String method, Throwable failure) {
+        boolean idempotent = retryNonIdempotent || IDEMPOTENT_METHODS.contains(method.toUpperCase());
+
+        if (failure instanceof HttpStatusException) {
+            HttpStatusException statusError = (HttpStatusException) failure;
+            int status = statusError.statusCode();
+            if (!RETRYABLE_STATUSES.contains(status)) {
+                return false;
+            }
+            if (idempotent || status == 429) {
+                return true;
+            }
+            return status == 503 && statusError.headers().firstValue("Retry-After").isPresent();
+        }
+
+        if (failure instanceof ConnectException || failure instanceof HttpConnectTimeoutException) {
+            // Never reached the server, so even a POST is safe to resend.
+            return true;
+        }
+        return idempotent && failure instanceof IOException;
+    }
+
+    /**
+     * Interprets the throttling hints sent by Jira Cloud, GitHub and Azure AI
+     * Inference. Returns null when the response carries none.
+     */
+    static Duration serverRequestedWait(HttpHeaders headers) {
+        if (headers == null) {
+            return null;
+        }
+
+        Optional<String> retryAfterMs = headers.firstValue("retry-after-ms");
+        if (retryAfterMs.isPresent()) {
+            try {
+                return Duration.ofMillis(Math.max(0, (long) Double.parseDouble(retryAfterMs.get().trim())));
+            } catch (NumberFormatException ignored) {
+                // fall through to the other headers
+            }
+        }
+
+        Optional<String> retryAfter = headers.firstValue("Retry-After");
+        if (retryAfter.isPresent()) {
+            String value = retryAfter.get().trim();
+            try {
+                return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+            } catch (NumberFormatException notSeconds) {
+                try {
+                    Instant at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                    return untilNow(at);
+                } catch (DateTimeParseException ignored) {
+                    // fall through to the rate-limit reset headers
+                }
+            }
+        }
+
+        Optional<String> reset = headers.firstValue("X-RateLimit-Reset");
+        boolean exhausted = headers.firstValue("X-RateLimit-Remaining").map(v -> v.trim().equals("0")).orElse(true);
+        if (reset.isPresent() && exhausted) {
+            String value = reset.get().trim();
+            try {
+                // GitHub: epoch seconds.
+                return untilNow(Instant.ofEpochSecond(Long.parseLong(value)));
+            } catch (NumberFormatException notEpoch) {
+                try {
+                    // Jira Cloud: ISO-8601 timestamp.
+                    return untilNow(ZonedDateTime.parse(value).toInstant());
+                } catch (DateTimeParseException ignored) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Duration untilNow(Instant at) {
+        Duration wait = Duration.between(Instant.now(), at);
+        return wait.isNegative() ? Duration.ZERO : wait;
+    }
+}
@@ -1,16 +1,26 @@
 package com.ayerma.assistant;
 
 import com.ayerma.assistant.client.BaAssistantClient;
-import com.ayerma.assistant.client.cli.GitHubCopilotCliClient;
-import com.ayerma.assistant.client.models.GitHubModelsClient;
+import com.ayerma.assistant.client.BaAssistantClients;
+import com.ayerma.assistant.client.routing.ModelTask;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public final class TechAssistantRunner {
+    // Current issue and its parents: prompt text plus what the parent traversal follows.
+    private static final IssueQuery ISSUE_FIELDS = IssueQuery.fields("summary", "description", "issuetype", "parent",
+            "subtasks");
+    // Question subtasks: the question, its context and the answer.
+    private static final IssueQuery QUESTION_FIELDS = IssueQuery.fields("summary", "description", "resolution",
+            "comment");
+
     public static void main(String[] args) throws Exception {
         System.out.println("[INFO] Starting Tech Assistant Runner...");
 
@@ -49,8 +59,14 @@ public final class TechAssistantRunner {
 
         System.out.println("[INFO] Loading instructions from: " + devInstructionsPath);
         String systemPrompt = loadSystemPrompt(devInstructionsPath, technicalReqPath);
+        String targetRepoPath = Env.optional("TARGET_REPO_PATH", null);
+        String repoPathNote = targetRepoPath != null && !targetRepoPath.isBlank()
+                ? "\n\nRepository path: " + targetRepoPath + "\n"
+                : "";
+        int promptBudget = PromptBudgeter.availableTokens(useModelsApi ? model : Env.optional("CLI_MODEL", null),
+                systemPrompt) - TokenEstimator.estimate(repoPathNote);
 
-        HttpJson jiraHttp = new HttpJson();
+        HttpJson jiraHttp = HttpJson.shared();
         JiraClient jira = new JiraClient(jiraHttp, jiraBaseUrl, jiraEmail, jiraApiToken);
 
         String providedSummary = Env.optional("JIRA_ISSUE_SUMMARY", null);
@@ -59,21 +75,18 @@ public final class TechAssistantRunner {
         String userPrompt;
         if (providedSummary != null && !providedSummary.isBlank()) {
             System.out.println("[INFO] Using provided summary and description");
-            userPrompt = buildContextualPrompt(jira, issueKey, providedSummary, providedDescription);
+            userPrompt = buildContextualPrompt(jira, issueKey, providedSummary, providedDescription, promptBudget);
         } else {
             System.out.println("[INFO] Fetching issue details from Jira API...");
-            JsonNode issue = jira.getIssue(issueKey);
+            JsonNode issue = jira.getIssue(issueKey, ISSUE_FIELDS);
             System.out.println("[INFO] Successfully fetched issue from Jira");
             String summary = textAt(issue, "/fields/summary");
             String description = textAt(issue, "/fields/description");
-            userPrompt = buildContextualPrompt(jira, issueKey, summary, description);
+            userPrompt = buildContextualPrompt(jira, issueKey, summary, description, promptBudget);
         }
 
         String promptOutputPath = Env.optional("TECH_PROMPT_OUTPUT_PATH", "tech-prompt.txt");
-        String targetRepoPath = Env.optional("TARGET_REPO_PATH", null);
-        if (targetRepoPath != null && !targetRepoPath.isBlank()) {
-            userPrompt = userPrompt + "\n\nRepository path: " + targetRepoPath + "\n";
-        }
+        userPrompt = userPrompt + repoPathNote;
 
         String combinedPrompt = systemPrompt + "\n\n" + userPrompt;
         Files.writeString(Path.of(promptOutputPath), combinedPrompt, StandardCharsets.UTF_8);
@@ -97,10 +110,10 @@ public final class TechAssistantRunner {
             if (modelsApiKey == null || modelsApiKey.isBlank()) {
                 throw new IllegalStateException("MODELS_TOKEN is required when USE_MODELS_API=true");
             }
-            HttpJson modelsHttp = new HttpJson();
-            client = new GitHubModelsClient(modelsHttp, modelsEndpoint, modelsApiKey, model);
+            HttpJson modelsHttp = HttpJson.shared();
+            client = BaAssistantClients.models(modelsHttp, modelsEndpoint, modelsApiKey, model, ModelTask.PLAN);
         } else {
-            client = new GitHubCopilotCliClient(cliCommand);
+            client = BaAssistantClients.copilotCli(cliCommand, ModelTask.PLAN);
         }
 
         String assistantOutput = client.runBaAssistant(systemPrompt, userPrompt);
@@ -138,7 +151,7 @@ public final class TechAssistantRunner {
         String jiraEmail = Env.required("JIRA_EMAIL");
         String jiraApiToken = Env.required("JIRA_API_TOKEN");
 
-        HttpJson jiraHttp = new HttpJson();
+        HttpJson jiraHttp = HttpJson.shared();
         JiraClient jira = new JiraClient(jiraHttp, jiraBaseUrl, jiraEmail, jiraApiToken);
 
         String comment = "✅ Implementation completed\n\n";
@@ -179,14 +192,15 @@ public final class TechAssistantRunner {
         return systemPrompt.toString();
     }
 
-    private static String buildContextualPrompt(JiraClient jira, String issueKey, String summary, String description)
-            throws Exception {
+    private static String buildContextualPrompt(JiraClient jira, String issueKey, String summary, String description,
+            int maxTokens) throws Exception {
         System.out.println("[INFO] Building contextual prompt for: " + issueKey);
 
-        StringBuilder prompt = new StringBuilder();
+        // The parent epic is the first thing to trim, then answered questions, then the task description.
+        PromptBudgeter prompt = new PromptBudgeter();
 
         // Fetch current issue for parent traversal
-        JsonNode currentIssue = jira.getIssue(issueKey);
+        JsonNode currentIssue = jira.getIssue(issueKey, ISSUE_FIELDS);
 
         // Traverse up to find Epic or root ticket for context
         JsonNode parentIssue = findParentEpic(jira, currentIssue);
@@ -197,32 +211,46 @@ public final class TechAssistantRunner {
             String parentDescription = textAt(parentIssue, "/fields/description");
 
             System.out.println("[INFO] Found parent context: " + parentKey + " (type: " + parentType + ")");
-            prompt.append("# Context: Original Application Idea\n\n");
-            prompt.append(parentType).append(": ").append(parentKey).append("\n");
-            prompt.append("Summary: ").append(parentSummary).append("\n\n");
+            StringBuilder parentBlock = new StringBuilder();
+            parentBlock.append("# Context: Original Application Idea\n\n");
+            parentBlock.append(parentType).append(": ").append(parentKey).append("\n");
+            parentBlock.append("Summary: ").append(parentSummary).append("\n\n");
             if (parentDescription != null && !parentDescription.isBlank()) {
-                prompt.append(parentDescription).append("\n\n");
+                parentBlock.append(parentDescription).append("\n\n");
             }
-            prompt.append("---\n\n");
+            parentBlock.append("---\n\n");
+            prompt.add("parent " + parentKey, PromptBudgeter.CONTEXT, parentBlock.toString());
         }
 
         // Current task
-        prompt.append("# Current Task\n\n");
-        prompt.append("Issue: ").append(issueKey).append("\n");
-        prompt.append("Summary: ").append(summary).append("\n\n");
+        prompt.add("# Current Task\n\n"
+                + "Issue: " + issueKey + "\n"
+                + "Summary: " + summary + "\n\n");
         if (description != null && !description.isBlank()) {
-            prompt.append("Description:\n").append(description).append("\n\n");
+            prompt.add("description", PromptBudgeter.IMPORTANT, "Description:\n" + description + "\n\n");
         }
 
         // Fetch question subtasks with answers
         JsonNode subtasks = currentIssue.at("/fields/subtasks");
         if (subtasks.isArray() && subtasks.size() > 0) {
-            StringBuilder questionsBlock = new StringBuilder();
-            int questionCount = 0;
+            List<String> questionBlocks = new ArrayList<>();
 
+            // Fetch every subtask in one search rather than one request each.
+            List<String> subtaskKeys = new ArrayList<>();
             for (JsonNode subtask : subtasks) {
                 String subtaskKey = textAt(subtask, "/key");
-                JsonNode subtaskDetails = jira.getIssue(subtaskKey);
+                if (subtaskKey != null) {
+                    subtaskKeys.add(subtaskKey);
+                }
+            }
+            Map<String, JsonNode> subtaskDetailsByKey = jira.getIssues(subtaskKeys, QUESTION_FIELDS);
+
+            for (String subtaskKey : subtaskKeys) {
+                JsonNode subtaskDetails = subtaskDetailsByKey.get(subtaskKey);
+                if (subtaskDetails == null) {
+                    System.out.println("[WARN] Could not fetch subtask " + subtaskKey);
+                    continue;
+                }
                 String subtaskSummary = textAt(subtaskDetails, "/fields/summary");
 
                 // Only include questions (starting with [Question])
@@ -230,13 +258,13 @@ public final class TechAssistantRunner {
                     String subtaskDescription = textAt(subtaskDetails, "/fields/description");
                     String resolution = textAt(subtaskDetails, "/fields/resolution/name");
 
-                    questionCount++;
-                    questionsBlock.append("## Question ").append(questionCount).append("\n");
-                    questionsBlock.append("**Q:** ").append(subtaskSummary.replace("[Question]", "").trim())
+                    StringBuilder questionBlock = new StringBuilder();
+                    questionBlock.append("## Question ").append(questionBlocks.size() + 1).append("\n");
+                    questionBlock.append("**Q:** ").append(subtaskSummary.replace("[Question]", "").trim())
                             .append("\n\n");
 
                     if (subtaskDescription != null && !subtaskDescription.isBlank()) {
-                        questionsBlock.append("**Context:** ").append(subtaskDescription).append("\n\n");
+                        questionBlock.append("**Context:** ").append(subtaskDescription).append("\n\n");
                     }
 
                     // Try to get answer from comments or resolution
@@ -246,32 +274,35 @@ public final class TechAssistantRunner {
                         JsonNode lastComment = comments.get(comments.size() - 1);
                         String answer = textAt(lastComment, "/body");
                         if (answer != null && !answer.isBlank()) {
-                            questionsBlock.append("**A:** ").append(answer).append("\n\n");
+                            questionBlock.append("**A:** ").append(answer).append("\n\n");
                         }
                     } else if (resolution != null && !resolution.equals("Unresolved")) {
-                        questionsBlock.append("**Status:** ").append(resolution).append("\n\n");
+                        questionBlock.append("**Status:** ").append(resolution).append("\n\n");
                     }
 
-                    questionsBlock.append("---\n\n");
+                    questionBlock.append("---\n\n");
+                    questionBlocks.add(questionBlock.toString());
                 }
             }
 
-            if (questionCount > 0) {
-                System.out.println("[INFO] Found " + questionCount + " question subtasks");
-                prompt.append("# Additional Details (Questions & Answers)\n\n");
-                prompt.append(questionsBlock);
+            if (!questionBlocks.isEmpty()) {
+                System.out.println("[INFO] Found " + questionBlocks.size() + " question subtasks");
+                prompt.add("# Additional Details (Questions & Answers)\n\n");
+                for (int i = 0; i < questionBlocks.size(); i++) {
+                    prompt.add("question " + (i + 1), PromptBudgeter.IMPORTANT, questionBlocks.get(i));
+                }
             }
         }
 
         // Important scope instructions
-        prompt.append("# Important Instructions\n\n");
-        prompt.append("- You MUST work ONLY on the current task defined above (").append(issueKey).append(")\n");
-        prompt.append("- Parent tickets are provided for context only\n");
-        prompt.append("- Follow all technical requirements from the technical guide\n");
-        prompt.append("- Implement only what is specified in the task description and answered questions\n");
-        prompt.append("- Do not add features or functionality beyond the current task scope\n");
-
-        return prompt.toString();
+        prompt.add("# Important Instructions\n\n"
+                + "- You MUST work ONLY on the current task defined above (" + issueKey + ")\n"
+                + "- Parent tickets are provided for context only\n"
+                + "- Follow all technical requirements from the technical guide\n"
+                + "- Implement only what is specified in the task description and answered questions\n"
+                + "- Do not add features or functionality beyond the current task scope\n");
+
+        return prompt.render(maxTokens);
     }
 
     private static JsonNode findParentEpic(JiraClient jira, JsonNode issue) throws Exception {
@@ -298,7 +329,7 @@ public final class TechAssistantRunner {
             if (!parent.isMissingNode() && !parent.isNull()) {
                 String parentKey = textAt(parent, "/key");
                 System.out.println("[DEBUG] Following parent link to: " + parentKey);
-                current = jira.getIssue(parentKey);
+                current = jira.getIssue(parentKey, ISSUE_FIELDS);
                 depth++;
                 continue;
             }
@@ -0,0 +1,39 @@
+package com.ayerma.assistant;
+
+/**
+ * Memory in front of a slower store: reads fall through to the second tier
+ * and promote what they find, writes go to both.
+ */
+public final class TieredIssueCache implements IssueCache {
+    private final IssueCache near;
+    private final IssueCache far;
+
+    public TieredIssueCache(IssueCache near, IssueCache far) {
+        this.near = near;
+        this.far = far;
+    }
+
+    @Override
+    public Entry get(String cacheKey) {
+        Entry entry = near.get(cacheKey);
+        if (entry == null) {
+            entry = far.get(cacheKey);
+            if (entry != null) {
+                near.put(cacheKey, entry);
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public void put(String cacheKey, Entry entry) {
+        near.put(cacheKey, entry);
+        far.put(cacheKey, entry);
+    }
+
+    @Override
+    public void invalidate(String issueKey) {
+        near.invalidate(issueKey);
+        far.invalidate(issueKey);
+    }
+}
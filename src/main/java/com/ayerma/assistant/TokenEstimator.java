@@ -0,0 +1,72 @@
+package com.ayerma.assistant;
+
+/**
+ * Offline estimate of how many tokens a BPE tokenizer of the GPT-4o family
+ * (cl100k / o200k) produces for a text, without bundling its vocabulary.
+ *
+ * The rules follow how those tokenizers split: a word with its leading space
+ * is one token up to about seven letters, digits go in groups of three, and
+ * punctuation and non-Latin scripts cost roughly a token per character. For
+ * English prose, Markdown and code the result is usually within 10-15% of the
+ * real count, which is enough for budgeting; it is not meant for billing.
+ */
+public final class TokenEstimator {
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int tokens = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            int start = i;
+
+            if (isAsciiLetter(c)) {
+                while (i < length && isAsciiLetter(text.charAt(i))) {
+                    i++;
+                }
+                tokens += Math.max(1, (i - start + 2) / 5);
+            } else if (c >= '0' && c <= '9') {
+                while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                    i++;
+                }
+                tokens += (i - start + 2) / 3;
+            } else if (c == ' ') {
+                while (i < length && text.charAt(i) == ' ') {
+                    i++;
+                }
+                // A single space merges into the next word; indentation runs are a token of their own.
+                if (i - start > 1 || i == length || !isAsciiLetter(text.charAt(i))) {
+                    tokens++;
+                }
+            } else if (c == '\n' || c == '\r' || c == '\t') {
+                while (i < length && (text.charAt(i) == '\n' || text.charAt(i) == '\r' || text.charAt(i) == '\t')) {
+                    i++;
+                }
+                tokens++;
+            } else if (Character.isLetter(c)) {
+                // Non-Latin scripts: ideographs are about a token each, alphabets about one per two or three chars.
+                boolean ideographic = Character.isIdeographic(c);
+                while (i < length && Character.isLetter(text.charAt(i)) && !isAsciiLetter(text.charAt(i))) {
+                    i++;
+                }
+                tokens += ideographic ? i - start : Math.max(1, (i - start + 1) / 2);
+            } else {
+                // Runs of the same symbol ("----", "====", "```") compress well.
+                while (i < length && text.charAt(i) == c) {
+                    i++;
+                }
+                tokens += (i - start + 3) / 4;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
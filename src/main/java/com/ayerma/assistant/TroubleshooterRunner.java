@@ -1,16 +1,23 @@
 package com.ayerma.assistant;
 
 import com.ayerma.assistant.client.BaAssistantClient;
-import com.ayerma.assistant.client.cli.GitHubCopilotCliClient;
-import com.ayerma.assistant.client.models.GitHubModelsClient;
+import com.ayerma.assistant.client.BaAssistantClients;
+import com.ayerma.assistant.client.routing.ModelTask;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public final class TroubleshooterRunner {
+    private static final IssueQuery ISSUE_FIELDS = IssueQuery.fields("summary", "description", "issuetype",
+            "issuelinks");
+    private static final IssueQuery RELATED_FIELDS = IssueQuery.fields("summary", "description", "status");
+
     public static void main(String[] args) throws Exception {
         System.out.println("[INFO] Starting Troubleshooter Runner...");
 
@@ -21,7 +28,7 @@ public final class TroubleshooterRunner {
         String jiraEmail = Env.required("JIRA_EMAIL");
         String jiraApiToken = Env.required("JIRA_API_TOKEN");
 
-        HttpJson jiraHttp = new HttpJson();
+        HttpJson jiraHttp = HttpJson.shared();
         JiraClient jiraClient = new JiraClient(jiraHttp, jiraBaseUrl, jiraEmail, jiraApiToken);
 
         String outputPath = Env.optional("TROUBLESHOOTER_OUTPUT_PATH", "troubleshooter-output.json");
@@ -60,12 +67,14 @@ public final class TroubleshooterRunner {
 
         System.out.println("[INFO] Loading instructions from: " + instructionsPath);
         String systemPrompt = loadSystemPrompt(instructionsPath);
+        int promptBudget = PromptBudgeter.availableTokens(useModelsApi ? model : Env.optional("CLI_MODEL", null),
+                systemPrompt);
 
         System.out.println("[INFO] Fetching issue details from Jira API...");
-        JsonNode issue = jiraClient.getIssue(issueKey);
+        JsonNode issue = jiraClient.getIssue(issueKey, ISSUE_FIELDS);
         System.out.println("[INFO] Successfully fetched issue from Jira");
 
-        String userPrompt = buildTroubleshooterPrompt(jiraClient, issue);
+        String userPrompt = buildTroubleshooterPrompt(jiraClient, issue, promptBudget);
 
         String promptOutputPath = Env.optional("TROUBLESHOOTER_PROMPT_OUTPUT_PATH", "troubleshooter-prompt.txt");
         String combinedPrompt = systemPrompt + "\n\n" + userPrompt;
@@ -87,10 +96,10 @@ public final class TroubleshooterRunner {
             if (modelsApiKey == null || modelsApiKey.isBlank()) {
                 throw new IllegalStateException("MODELS_TOKEN is required when USE_MODELS_API=true");
             }
-            HttpJson modelsHttp = new HttpJson();
-            client = new GitHubModelsClient(modelsHttp, modelsEndpoint, modelsApiKey, model);
+            HttpJson modelsHttp = HttpJson.shared();
+            client = BaAssistantClients.models(modelsHttp, modelsEndpoint, modelsApiKey, model, ModelTask.PLAN);
         } else {
-            client = new GitHubCopilotCliClient(cliCommand);
+            client = BaAssistantClients.copilotCli(cliCommand, ModelTask.PLAN);
         }
 
         String assistantOutput = client.runBaAssistant(systemPrompt, userPrompt);
@@ -118,7 +127,7 @@ public final class TroubleshooterRunner {
         return result;
     }
 
-    private static String buildTroubleshooterPrompt(JiraClient jira, JsonNode issue) throws Exception {
+    private static String buildTroubleshooterPrompt(JiraClient jira, JsonNode issue, int maxTokens) throws Exception {
         String issueKey = textAt(issue, "/key");
         String summary = textAt(issue, "/fields/summary");
         String description = textAt(issue, "/fields/description");
@@ -126,75 +135,85 @@ public final class TroubleshooterRunner {
 
         System.out.println("[INFO] Building troubleshooter prompt for: " + issueKey);
 
-        StringBuilder prompt = new StringBuilder();
+        // Related issues go first when the prompt is too large, the issue's own description last.
+        PromptBudgeter prompt = new PromptBudgeter();
 
-        prompt.append("# Issue to Troubleshoot\n\n");
-        prompt.append("**Issue Key:** ").append(issueKey).append("\n");
-        prompt.append("**Type:** ").append(issueType != null ? issueType : "Unknown").append("\n");
-        prompt.append("**Summary:** ").append(summary != null ? summary : "No summary").append("\n\n");
+        prompt.add("# Issue to Troubleshoot\n\n"
+                + "**Issue Key:** " + issueKey + "\n"
+                + "**Type:** " + (issueType != null ? issueType : "Unknown") + "\n"
+                + "**Summary:** " + (summary != null ? summary : "No summary") + "\n\n");
 
         if (description != null && !description.isBlank()) {
-            prompt.append("**Description:**\n").append(description).append("\n\n");
+            prompt.add("description", PromptBudgeter.IMPORTANT, "**Description:**\n" + description + "\n\n");
         }
 
         // Fetch related issues (issuelinks)
         JsonNode issueLinks = issue.at("/fields/issuelinks");
         if (issueLinks.isArray() && issueLinks.size() > 0) {
             System.out.println("[INFO] Found " + issueLinks.size() + " related issues");
-            prompt.append("# Related Issues\n\n");
+            prompt.add("# Related Issues\n\n");
+
+            // One search for all linked issues instead of a request per link.
+            List<String> relatedKeys = new ArrayList<>();
+            for (JsonNode link : issueLinks) {
+                String relatedKey = textAt(relatedIssueOf(link), "/key");
+                if (relatedKey != null) {
+                    relatedKeys.add(relatedKey);
+                }
+            }
+            System.out.println("[INFO] Fetching related issues: " + String.join(", ", relatedKeys));
+            Map<String, JsonNode> relatedIssues;
+            try {
+                relatedIssues = jira.getIssues(relatedKeys, RELATED_FIELDS);
+            } catch (Exception e) {
+                System.out.println("[WARN] Could not fetch related issues: " + e.getMessage());
+                relatedIssues = Map.of();
+            }
 
             int relatedCount = 0;
             for (JsonNode link : issueLinks) {
-                JsonNode relatedIssue = null;
                 String linkType = textAt(link, "/type/name");
-
-                // Check both inward and outward issue
-                if (link.has("inwardIssue")) {
-                    relatedIssue = link.get("inwardIssue");
-                } else if (link.has("outwardIssue")) {
-                    relatedIssue = link.get("outwardIssue");
+                String relatedKey = textAt(relatedIssueOf(link), "/key");
+                if (relatedKey == null) {
+                    continue;
                 }
 
-                if (relatedIssue != null) {
-                    String relatedKey = textAt(relatedIssue, "/key");
-                    System.out.println("[INFO] Fetching related issue: " + relatedKey);
-
-                    try {
-                        JsonNode relatedDetails = jira.getIssue(relatedKey);
-                        String relatedSummary = textAt(relatedDetails, "/fields/summary");
-                        String relatedDescription = textAt(relatedDetails, "/fields/description");
-                        String relatedStatus = textAt(relatedDetails, "/fields/status/name");
-
-                        relatedCount++;
-                        prompt.append("## Related Issue ").append(relatedCount).append(": ")
-                                .append(relatedKey).append("\n\n");
-                        prompt.append("**Link Type:** ").append(linkType != null ? linkType : "Related").append("\n");
-                        prompt.append("**Status:** ").append(relatedStatus != null ? relatedStatus : "Unknown")
-                                .append("\n");
-                        prompt.append("**Summary:** ").append(relatedSummary != null ? relatedSummary : "No summary")
-                                .append("\n\n");
-
-                        if (relatedDescription != null && !relatedDescription.isBlank()) {
-                            prompt.append("**Description:**\n").append(relatedDescription).append("\n\n");
-                        }
-
-                        prompt.append("---\n\n");
-                    } catch (Exception e) {
-                        System.out
-                                .println("[WARN] Could not fetch related issue " + relatedKey + ": " + e.getMessage());
-                    }
+                JsonNode relatedDetails = relatedIssues.get(relatedKey);
+                if (relatedDetails == null) {
+                    System.out.println("[WARN] Could not fetch related issue " + relatedKey);
+                    continue;
                 }
+                String relatedSummary = textAt(relatedDetails, "/fields/summary");
+                String relatedDescription = textAt(relatedDetails, "/fields/description");
+                String relatedStatus = textAt(relatedDetails, "/fields/status/name");
+
+                relatedCount++;
+                StringBuilder related = new StringBuilder();
+                related.append("## Related Issue ").append(relatedCount).append(": ")
+                        .append(relatedKey).append("\n\n");
+                related.append("**Link Type:** ").append(linkType != null ? linkType : "Related").append("\n");
+                related.append("**Status:** ").append(relatedStatus != null ? relatedStatus : "Unknown")
+                        .append("\n");
+                related.append("**Summary:** ").append(relatedSummary != null ? relatedSummary : "No summary")
+                        .append("\n\n");
+
+                if (relatedDescription != null && !relatedDescription.isBlank()) {
+                    related.append("**Description:**\n").append(relatedDescription).append("\n\n");
+                }
+
+                related.append("---\n\n");
+                prompt.add("related " + relatedKey, PromptBudgeter.EXPENDABLE, related.toString());
             }
         }
 
-        prompt.append("# Task\n\n");
-        prompt.append("Analyze the issue and all related context provided above. ");
-        prompt.append("Provide troubleshooting guidance split into:\n");
-        prompt.append("1. **Technical fixes** - code or configuration changes in the repository\n");
-        prompt.append("2. **Manual actions** - steps requiring human intervention outside the repository\n\n");
-        prompt.append("Return the strict JSON format as specified in the instructions.\n");
+        prompt.add("# Task\n\n"
+                + "Analyze the issue and all related context provided above. "
+                + "Provide troubleshooting guidance split into:\n"
+                + "1. **Technical fixes** - code or configuration changes in the repository\n"
+                + "2. **Manual actions** - steps requiring human intervention outside the repository\n\n"
+                + "Return the strict JSON format as specified in the instructions.\n");
 
-        return prompt.toString();
+        return prompt.render(maxTokens);
     }
 
     private static void createJiraTicketsFromOutput(JiraClient jiraClient, String issueKey, JsonNode parsed)
@@ -207,7 +226,8 @@ public final class TroubleshooterRunner {
         String taskIssueType = Env.optional("JIRA_TASK_ISSUE_TYPE", "Task");
         String linkType = Env.optional("JIRA_LINK_TYPE", "Blocks");
 
-        int createdCount = 0;
+        // Both tickets go out in one bulk call, labels and blocker link included.
+        List<IssueSpec> specs = new ArrayList<>();
 
         // Create technical fix ticket
         JsonNode technicalFix = parsed.get("technical_fix");
@@ -245,20 +265,10 @@ public final class TroubleshooterRunner {
 
             String summary = title != null && !title.isBlank() ? title : "Technical Fix for " + issueKey;
 
-            System.out.println("[INFO] Creating technical fix ticket");
-            String technicalKey = jiraClient.createIssue(projectKey, taskIssueType, summary,
-                    fullDescription.toString());
-            System.out.println("[SUCCESS] Created technical fix ticket: " + technicalKey);
-
-            // Add BA-DEV label
-            System.out.println("[INFO] Adding BA-DEV label to " + technicalKey);
-            jiraClient.addLabels(technicalKey, "BA-DEV");
-
-            // Link as blocker
-            System.out.println("[INFO] Linking " + technicalKey + " as blocker to " + issueKey);
-            jiraClient.linkIssues(technicalKey, issueKey, linkType);
-
-            createdCount++;
+            System.out.println("[INFO] Creating technical fix ticket (labels: DEV-AI, BA-DEV)");
+            specs.add(new IssueSpec(projectKey, taskIssueType, summary, fullDescription.toString())
+                    .withLabels("DEV-AI", "BA-DEV")
+                    .withLink(linkType, issueKey));
         } else {
             System.out.println("[INFO] No technical fix needed");
         }
@@ -296,24 +306,43 @@ public final class TroubleshooterRunner {
 
             String summary = title != null && !title.isBlank() ? title : "Manual Actions for " + issueKey;
 
-            System.out.println("[INFO] Creating manual actions ticket");
-            String manualKey = jiraClient.createIssue(projectKey, taskIssueType, summary, fullDescription.toString());
-            System.out.println("[SUCCESS] Created manual actions ticket: " + manualKey);
-
-            // Add Attention label
-            System.out.println("[INFO] Adding Attention label to " + manualKey);
-            jiraClient.addLabels(manualKey, "Attention");
+            System.out.println("[INFO] Creating manual actions ticket (labels: DEV-AI, Attention)");
+            specs.add(new IssueSpec(projectKey, taskIssueType, summary, fullDescription.toString())
+                    .withLabels("DEV-AI", "Attention")
+                    .withLink(linkType, issueKey));
+        } else {
+            System.out.println("[INFO] No manual actions needed");
+        }
 
-            // Link as blocker
-            System.out.println("[INFO] Linking " + manualKey + " as blocker to " + issueKey);
-            jiraClient.linkIssues(manualKey, issueKey, linkType);
+        if (specs.isEmpty()) {
+            System.out.println("[SUCCESS] Created 0 troubleshooting tickets");
+            return;
+        }
 
+        BulkCreateResult created = jiraClient.createIssuesBulk(specs);
+        int createdCount = 0;
+        for (int i = 0; i < specs.size(); i++) {
+            if (!created.isCreated(i)) {
+                System.out.println("[WARN] Failed to create ticket (" + specs.get(i).summary() + "): "
+                        + created.error(i));
+                continue;
+            }
+            String createdKey = created.key(i);
+            System.out.println("[SUCCESS] Created ticket: " + createdKey + " (" + specs.get(i).summary()
+                    + "), linked as blocker to " + issueKey);
             createdCount++;
-        } else {
-            System.out.println("[INFO] No manual actions needed");
         }
 
         System.out.println("[SUCCESS] Created " + createdCount + " troubleshooting tickets");
+        created.throwIfAnyFailed();
+    }
+
+    /** The issue on the other end of a link: inward or outward, whichever is set. */
+    private static JsonNode relatedIssueOf(JsonNode link) {
+        if (link.has("inwardIssue")) {
+            return link.get("inwardIssue");
+        }
+        return link.get("outwardIssue");
     }
 
     private static String textAt(JsonNode node, String pointer) {
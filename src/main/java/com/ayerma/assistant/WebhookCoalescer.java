@@ -0,0 +1,207 @@
+package com.ayerma.assistant;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+
+/**
+ * Folds bursts of webhooks for one issue into a single dispatch. Jira sends
+ * several issue_updated events for one edit session (fields, labels,
+ * transitions), and each would otherwise start its own workflow run.
+ *
+ * An issue is passed on once no event for it arrived for the quiet window,
+ * or once the max wait has passed since its first event, whichever comes
+ * first. Only the latest event per issue is kept; the offsets of the events
+ * it replaces are handed to {@code superseded} right away, so the journal
+ * can acknowledge them. Pending issues are ordered by due time, and at most
+ * {@code maxKeys} are held at once.
+ */
+final class WebhookCoalescer {
+    /** Receives an issue whose window closed. */
+    interface Sink {
+        void accept(String issueKey, long offset, long receivedAt) throws InterruptedException;
+    }
+
+    private final long quietNanos;
+    private final long maxWaitNanos;
+    private final int maxKeys;
+    private final LongConsumer superseded;
+    private final Sink sink;
+
+    private final Map<String, Pending> byKey = new HashMap<>();
+    private final TreeSet<Pending> byDueTime = new TreeSet<>(
+            Comparator.comparingLong((Pending pending) -> pending.dueAt).thenComparingLong(pending -> pending.seq));
+    private final Thread timer;
+    private long nextSeq;
+    private boolean closed;
+
+    WebhookCoalescer(long quietMillis, long maxWaitMillis, int maxKeys, LongConsumer superseded, Sink sink) {
+        this.quietNanos = quietMillis * 1_000_000L;
+        this.maxWaitNanos = Math.max(quietMillis, maxWaitMillis) * 1_000_000L;
+        this.maxKeys = maxKeys;
+        this.superseded = superseded;
+        this.sink = sink;
+        this.timer = new Thread(this::run, "webhook-coalescer");
+        this.timer.setDaemon(true);
+        this.timer.start();
+        System.out.println("[INFO] Coalescing webhooks per issue: " + quietMillis + " ms quiet window, "
+                + Math.max(quietMillis, maxWaitMillis) + " ms max wait, up to " + maxKeys + " issues");
+    }
+
+    /**
+     * Reads WEBHOOK_COALESCE_QUIET_MILLIS (default 5000), WEBHOOK_COALESCE_MAX_WAIT_MILLIS
+     * (default 30000) and WEBHOOK_COALESCE_MAX_KEYS (default 10000).
+     *
+     * @return the coalescer, or null when the quiet window is 0
+     */
+    static WebhookCoalescer fromEnv(LongConsumer superseded, Sink sink) {
+        long quietMillis = Long.parseLong(Env.optional("WEBHOOK_COALESCE_QUIET_MILLIS", "5000"));
+        if (quietMillis <= 0) {
+            return null;
+        }
+        return new WebhookCoalescer(quietMillis,
+                Long.parseLong(Env.optional("WEBHOOK_COALESCE_MAX_WAIT_MILLIS", "30000")),
+                Integer.parseInt(Env.optional("WEBHOOK_COALESCE_MAX_KEYS", "10000")), superseded, sink);
+    }
+
+    /** Whether {@link #offer} would accept an event for the issue now. */
+    synchronized boolean hasRoomFor(String issueKey) {
+        return byKey.containsKey(issueKey) || byKey.size() < maxKeys;
+    }
+
+    /**
+     * Adds an event, merging it into the issue's pending one if there is one.
+     *
+     * @return false when {@code maxKeys} other issues are already pending
+     */
+    synchronized boolean offer(String issueKey, long offset) {
+        long now = System.nanoTime();
+        Pending pending = byKey.get(issueKey);
+        if (pending == null) {
+            if (closed || byKey.size() >= maxKeys) {
+                return false;
+            }
+            pending = new Pending(issueKey, offset, now, nextSeq++);
+            pending.dueAt = now + quietNanos;
+            byKey.put(issueKey, pending);
+            byDueTime.add(pending);
+        } else {
+            superseded.accept(pending.offset);
+            byDueTime.remove(pending);
+            pending.offset = offset;
+            pending.events++;
+            pending.dueAt = Math.min(now + quietNanos, pending.firstAt + maxWaitNanos);
+            byDueTime.add(pending);
+        }
+        if (pending.dueAt - byDueTime.first().dueAt <= 0) {
+            notifyAll();
+        }
+        return true;
+    }
+
+    /** Like {@link #offer}, but waits for room instead of refusing. */
+    synchronized void offerWaiting(String issueKey, long offset) throws InterruptedException {
+        while (!offer(issueKey, offset)) {
+            if (closed) {
+                return;
+            }
+            wait();
+        }
+    }
+
+    synchronized int size() {
+        return byKey.size();
+    }
+
+    /**
+     * Stops the timer and hands every pending issue to {@code flushSink} now,
+     * on the calling thread, instead of waiting out their windows. The timer
+     * stops once it has handed on the issue it may be delivering.
+     */
+    void flush(Sink flushSink) throws InterruptedException {
+        for (Pending pending : close()) {
+            deliver(pending, flushSink);
+        }
+    }
+
+    /**
+     * Stops the timer and drops the pending issues, for when they are kept
+     * elsewhere (the journal).
+     *
+     * @return how many issues were pending
+     */
+    int discard() {
+        return close().size();
+    }
+
+    private synchronized List<Pending> close() {
+        closed = true;
+        List<Pending> all = new ArrayList<>(byDueTime);
+        byDueTime.clear();
+        byKey.clear();
+        notifyAll();
+        return all;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Pending due;
+                synchronized (this) {
+                    while (true) {
+                        if (closed) {
+                            return;
+                        }
+                        long waitNanos = byDueTime.isEmpty() ? Long.MAX_VALUE
+                                : byDueTime.first().dueAt - System.nanoTime();
+                        if (waitNanos <= 0) {
+                            break;
+                        }
+                        if (waitNanos == Long.MAX_VALUE) {
+                            wait();
+                        } else {
+                            wait(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+                        }
+                    }
+                    due = byDueTime.pollFirst();
+                    byKey.remove(due.issueKey);
+                    // Room for a waiting offerWaiting call.
+                    notifyAll();
+                }
+                // Outside the lock: the sink may block while the dispatch queue is full.
+                deliver(due, sink);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void deliver(Pending pending, Sink sink) throws InterruptedException {
+        if (pending.events > 1) {
+            System.out.println("[INFO] Coalesced " + pending.events + " webhooks for " + pending.issueKey
+                    + " into one dispatch");
+        }
+        sink.accept(pending.issueKey, pending.offset, pending.firstAt);
+    }
+
+    private static final class Pending {
+        private final String issueKey;
+        private final long firstAt;
+        // Tie-breaker for equal due times.
+        private final long seq;
+        private long offset;
+        private long dueAt;
+        private int events = 1;
+
+        private Pending(String issueKey, long offset, long firstAt, long seq) {
+            this.issueKey = issueKey;
+            this.offset = offset;
+            this.firstAt = firstAt;
+            this.seq = seq;
+        }
+    }
+}
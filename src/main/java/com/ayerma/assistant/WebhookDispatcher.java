@@ -0,0 +1,317 @@
+package com.ayerma.assistant;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends queued webhook events to GitHub repository_dispatch on background
+ * workers, so {@link JiraWebhookServer} can acknowledge a webhook as soon as
+ * it is validated instead of waiting on GitHub.
+ *
+ * The queue is bounded; {@link #submit(String)} returns false when it is
+ * full, and the webhook is refused so Jira delivers it again later. A failed
+ * dispatch is queued again after the WEBHOOK_DISPATCH retry delay while
+ * attempts remain. Unlike the in-request retries of {@link HttpJson}, this
+ * also repeats dispatches that may have reached GitHub (5xx, lost
+ * connection), as Jira's own redelivery did before.
+ *
+ * With a {@link WebhookJournal}, an event is on disk before it is queued
+ * and acknowledged in the journal once it is dispatched or given up on;
+ * events left over from a previous run are queued again on start.
+ *
+ * Unless WEBHOOK_COALESCE_QUIET_MILLIS is 0, events first pass through a
+ * {@link WebhookCoalescer}, so a burst of webhooks for one issue is
+ * dispatched once.
+ */
+final class WebhookDispatcher {
+    // Background retries can afford to wait out a GitHub outage or an open circuit:
+    // 8 attempts over roughly two to four minutes.
+    private static final RetryPolicy DEFAULT_RETRIES = new RetryPolicy(8, 2_000, 120_000, 600_000, true);
+
+    private final GitHubDispatchClient dispatch;
+    private final String eventType;
+    private final RetryPolicy retryPolicy;
+    private final WebhookJournal journal;
+    private final BlockingQueue<Event> queue;
+    private final WebhookCoalescer coalescer;
+    private final List<Thread> workers = new ArrayList<>();
+    // Events handed to the queue and not yet acknowledged: queued, being sent or waiting for a retry.
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "webhook-dispatch-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    WebhookDispatcher(GitHubDispatchClient dispatch, String eventType, int capacity, int workerCount,
+            RetryPolicy retryPolicy, WebhookJournal journal) {
+        this.dispatch = dispatch;
+        this.eventType = eventType;
+        this.retryPolicy = retryPolicy;
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.coalescer = WebhookCoalescer.fromEnv(this::acknowledge,
+                (issueKey, offset, receivedAt) -> put(new Event(issueKey, offset, 1, receivedAt)));
+        for (int i = 1; i <= workerCount; i++) {
+            Thread worker = new Thread(this::work, "webhook-dispatch-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        System.out.println("[INFO] Dispatching webhooks on " + workerCount + " worker(s), queue of " + capacity);
+        if (journal != null) {
+            replay(journal.unacknowledged());
+        }
+    }
+
+    /**
+     * Reads WEBHOOK_DISPATCH_QUEUE_SIZE (default 1000), WEBHOOK_DISPATCH_WORKERS
+     * (default 2) and the WEBHOOK_DISPATCH retry settings.
+     *
+     * @param journal where accepted events are persisted, or null to keep them in memory only
+     */
+    static WebhookDispatcher fromEnv(GitHubDispatchClient dispatch, String eventType, WebhookJournal journal) {
+        return new WebhookDispatcher(dispatch, eventType,
+                Integer.parseInt(Env.optional("WEBHOOK_DISPATCH_QUEUE_SIZE", "1000")),
+                Integer.parseInt(Env.optional("WEBHOOK_DISPATCH_WORKERS", "2")),
+                RetryPolicy.fromEnv("WEBHOOK_DISPATCH", DEFAULT_RETRIES), journal);
+    }
+
+    /**
+     * Queues a dispatch for the issue, after writing it to the journal if
+     * there is one.
+     *
+     * @return false when the queue is full
+     */
+    boolean submit(String issueKey) throws IOException, InterruptedException {
+        if (coalescer != null) {
+            if (!coalescer.hasRoomFor(issueKey)) {
+                return false;
+            }
+            if (journal == null) {
+                return coalescer.offer(issueKey, -1);
+            }
+            long offset = journal.append(issueKey);
+            // Already on disk: wait for room rather than refuse it (only if it filled up meanwhile).
+            coalescer.offerWaiting(issueKey, offset);
+            return true;
+        }
+        if (journal == null) {
+            return offer(new Event(issueKey, -1, 1, System.nanoTime()), 0);
+        }
+        if (queue.remainingCapacity() == 0) {
+            return false;
+        }
+        long offset = journal.append(issueKey);
+        // Already on disk: wait for room rather than refuse it (only if the queue filled up meanwhile).
+        put(new Event(issueKey, offset, 1, System.nanoTime()));
+        return true;
+    }
+
+    /** Events waiting for the coalescing window or for a dispatch worker. */
+    int pending() {
+        return queue.size() + (coalescer != null ? coalescer.size() : 0);
+    }
+
+    /**
+     * Lets the workers finish the queued events, including those being sent
+     * or waiting for a retry, for up to {@code timeout}, then stops them.
+     * Events not finished by then are lost, unless they are in the journal.
+     * Issues waiting in the coalescer are left to the journal, or without
+     * one passed to the workers while there is time.
+     */
+    void shutdown(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int unsent = 0;
+        if (coalescer != null && journal != null) {
+            // Still unacknowledged in the journal, so they are replayed on the next start.
+            int held = coalescer.discard();
+            if (held > 0) {
+                System.out.println("[INFO] Leaving " + held + " coalesced webhook(s) in the journal");
+            }
+        } else if (coalescer != null) {
+            // Do not wait out the coalescing windows, nor for room in the queue past the deadline.
+            int[] dropped = { 0 };
+            coalescer.flush((issueKey, offset, receivedAt) -> {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (!offer(new Event(issueKey, offset, 1, receivedAt), remaining)) {
+                    dropped[0]++;
+                }
+            });
+            unsent = dropped[0];
+        }
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        retries.shutdownNow();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        if (journal != null) {
+            for (Thread worker : workers) {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            }
+            long pending = journal.pending();
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.out.println("[WARN] Could not close webhook journal: " + e.getMessage());
+            }
+            if (pending > 0) {
+                System.out.println("[INFO] Stopping with " + pending + " webhook dispatch(es) left in the journal"
+                        + " for the next start");
+            }
+        } else if (unsent + inFlight.get() > 0) {
+            System.out.println("[WARN] Stopping with " + (unsent + inFlight.get()) + " webhook dispatch(es) not sent");
+        }
+    }
+
+    /**
+     * Queues events from a previous run. This happens on its own thread, as
+     * there may be more of them than the queue holds.
+     */
+    private void replay(List<WebhookJournal.Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        System.out.println("[INFO] Replaying " + entries.size() + " webhook dispatch(es) from the journal");
+        Thread thread = new Thread(() -> {
+            try {
+                for (WebhookJournal.Entry entry : entries) {
+                    if (coalescer != null) {
+                        coalescer.offerWaiting(entry.issueKey, entry.offset);
+                    } else {
+                        put(new Event(entry.issueKey, entry.offset, 1, System.nanoTime()));
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Shutting down; the rest stays in the journal.
+            }
+        }, "webhook-journal-replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void work() {
+        while (true) {
+            Event event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            send(event);
+        }
+    }
+
+    private void send(Event event) {
+        try {
+            dispatch.repositoryDispatch(eventType, event.issueKey);
+            System.out.println("[INFO] Dispatched GitHub workflow for " + event.issueKey + " ("
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - event.receivedAt) + " ms after receipt)");
+            acknowledge(event);
+        } catch (InterruptedException e) {
+            // Shutting down; a journaled event is replayed on the next start.
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            Optional<Duration> delay = retryPolicy.nextDelay("POST", event.attempt, e);
+            if (delay.isEmpty()) {
+                System.out.println("[WARN] Giving up on GitHub dispatch for " + event.issueKey + " after "
+                        + event.attempt + " attempt(s): " + describe(e));
+                acknowledge(event);
+                return;
+            }
+            System.out.println("[WARN] GitHub dispatch for " + event.issueKey + " failed (" + describe(e)
+                    + ") - retrying in " + delay.get().toMillis() + " ms");
+            requeueLater(event.next(), delay.get().toMillis());
+        }
+    }
+
+    private void requeue(Event event) {
+        if (!queue.offer(event)) {
+            System.out.println("[WARN] Dispatch queue full - retrying " + event.issueKey + " in 1000 ms");
+            requeueLater(event, 1000);
+        }
+    }
+
+    private void requeueLater(Event event, long delayMillis) {
+        try {
+            retries.schedule(() -> requeue(event), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the retry scheduler is stopped.
+            System.out.println("[WARN] Not retrying GitHub dispatch for " + event.issueKey + " - shutting down"
+                    + (journal != null ? "; it is left in the journal for the next start" : "; it is lost"));
+        }
+    }
+
+    /** Queues a new event, waiting for room. */
+    private void put(Event event) throws InterruptedException {
+        inFlight.incrementAndGet();
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /** Queues a new event if there is room within {@code timeoutNanos}. */
+    private boolean offer(Event event, long timeoutNanos) throws InterruptedException {
+        // Counted first, so a worker acknowledging it right away cannot take the count below zero.
+        inFlight.incrementAndGet();
+        boolean queued = false;
+        try {
+            queued = queue.offer(event, timeoutNanos, TimeUnit.NANOSECONDS);
+            return queued;
+        } finally {
+            if (!queued) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    /** The event is done with: dispatched or given up on. */
+    private void acknowledge(Event event) {
+        inFlight.decrementAndGet();
+        acknowledge(event.offset);
+    }
+
+    private void acknowledge(long offset) {
+        if (journal != null) {
+            journal.acknowledge(offset);
+        }
+    }
+
+    private static String describe(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private static final class Event {
+        private final String issueKey;
+        // Journal offset, or -1 without a journal.
+        private final long offset;
+        private final int attempt;
+        private final long receivedAt;
+
+        private Event(String issueKey, long offset, int attempt, long receivedAt) {
+            this.issueKey = issueKey;
+            this.offset = offset;
+            this.attempt = attempt;
+            this.receivedAt = receivedAt;
+        }
+
+        private Event next() {
+            return new Event(issueKey, offset, attempt + 1, receivedAt);
+        }
+    }
+}
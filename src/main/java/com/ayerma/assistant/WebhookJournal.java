@@ -0,0 +1,392 @@
+package com.ayerma.assistant;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of accepted webhooks, so events survive a restart of
+ * {@link JiraWebhookServer} until they have been dispatched.
+ *
+ * Events get consecutive offsets and are written to segment files named
+ * after the offset of their first event; a new segment is started once the
+ * current one reaches WEBHOOK_JOURNAL_SEGMENT_MB. Each record is a length,
+ * a CRC32 and the issue key, so a record torn by a crash is detected and cut
+ * off on the next start.
+ *
+ * {@link #append(String)} returns only once the record is on disk. Appends
+ * are synced by one background thread: everything written while one fsync
+ * runs goes out with the next, so concurrent webhooks share fsyncs instead
+ * of paying one each.
+ *
+ * Dispatched events are acknowledged by offset. The checkpoint file holds
+ * the offset below which every event is acknowledged; it is written every
+ * WEBHOOK_JOURNAL_CHECKPOINT_MILLIS, and segments entirely below it are
+ * deleted. On start, events from the checkpoint on are handed back by
+ * {@link #unacknowledged()}. Events acknowledged after the last checkpoint
+ * are replayed too, so dispatch is at least once.
+ */
+final class WebhookJournal implements Closeable {
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    // length + CRC32
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_KEY_BYTES = 1024;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final Thread syncer;
+    private final ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "webhook-journal-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Base offset of each segment on disk; the last one is written to.
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private FileChannel active;
+    private long nextOffset;
+    // Every offset below syncedOffset is on disk.
+    private long syncedOffset;
+    private IOException syncFailure;
+    private boolean closed;
+
+    // Every offset below committed is acknowledged; ackedAhead holds acknowledgements past a gap.
+    private long committed;
+    private final TreeSet<Long> ackedAhead = new TreeSet<>();
+    // Guards checkpointed and the checkpoint file, apart from the append lock.
+    private final Object checkpointLock = new Object();
+    private long checkpointed;
+    private List<Entry> unacknowledged;
+
+    private WebhookJournal(Path dir, long segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.syncer = new Thread(this::syncLoop, "webhook-journal-sync");
+        this.syncer.setDaemon(true);
+    }
+
+    /**
+     * @return the journal in WEBHOOK_JOURNAL_DIR, or null when it is not set
+     */
+    static WebhookJournal fromEnv() throws IOException {
+        String dir = Env.optional("WEBHOOK_JOURNAL_DIR", null);
+        if (dir == null) {
+            return null;
+        }
+        return open(Paths.get(dir),
+                Long.parseLong(Env.optional("WEBHOOK_JOURNAL_SEGMENT_MB", "64")) * 1024 * 1024,
+                Long.parseLong(Env.optional("WEBHOOK_JOURNAL_CHECKPOINT_MILLIS", "1000")));
+    }
+
+    static WebhookJournal open(Path dir, long segmentBytes, long checkpointMillis) throws IOException {
+        Files.createDirectories(dir);
+        WebhookJournal journal = new WebhookJournal(dir, segmentBytes);
+        journal.recover();
+        journal.syncer.start();
+        journal.checkpointer.scheduleWithFixedDelay(journal::checkpointQuietly, checkpointMillis, checkpointMillis,
+                TimeUnit.MILLISECONDS);
+        return journal;
+    }
+
+    /** Events found on start that were not acknowledged; only returned once. */
+    synchronized List<Entry> unacknowledged() {
+        List<Entry> entries = unacknowledged;
+        unacknowledged = List.of();
+        return entries;
+    }
+
+    /**
+     * Writes the event and waits until it is on disk.
+     *
+     * @return the event's offset, to pass to {@link #acknowledge(long)}
+     */
+    long append(String issueKey) throws IOException, InterruptedException {
+        byte[] key = issueKey.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_KEY_BYTES) {
+            throw new IOException("Issue key too long for the journal: " + key.length + " bytes");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + key.length);
+        record.putInt(key.length).putInt((int) crc.getValue()).put(key).flip();
+
+        long offset;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Webhook journal is closed");
+            }
+            if (active.size() > 0 && active.size() + record.remaining() > segmentBytes) {
+                roll();
+            }
+            while (record.hasRemaining()) {
+                active.write(record);
+            }
+            offset = nextOffset++;
+            notifyAll();
+
+            while (syncedOffset <= offset) {
+                if (syncFailure != null) {
+                    // Not known to be on disk; the sender is told to retry, so do not replay it as well.
+                    acknowledge(offset);
+                    throw new IOException("Webhook journal sync failed: " + syncFailure.getMessage(), syncFailure);
+                }
+                wait();
+            }
+        }
+        return offset;
+    }
+
+    /** Marks the event as dispatched (or given up on), so it is not replayed. */
+    synchronized void acknowledge(long offset) {
+        if (offset < committed) {
+            return;
+        }
+        if (offset != committed) {
+            ackedAhead.add(offset);
+            return;
+        }
+        committed++;
+        while (ackedAhead.remove(committed)) {
+            committed++;
+        }
+    }
+
+    /** Events appended but not yet acknowledged. */
+    synchronized long pending() {
+        return nextOffset - committed - ackedAhead.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        checkpointer.shutdownNow();
+        try {
+            syncer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+        synchronized (this) {
+            active.force(false);
+            active.close();
+        }
+    }
+
+    /** Reads the checkpoint and segments, cuts off a torn last record and opens the last segment. */
+    private void recover() throws IOException {
+        Path checkpointFile = dir.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpointFile)) {
+            committed = Long.parseLong(Files.readString(checkpointFile, StandardCharsets.UTF_8).trim());
+        }
+        checkpointed = committed;
+
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).forEach(file -> {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+            });
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        nextOffset = committed;
+        long validBytes = 0;
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            long offset = segment.getKey();
+            try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                long position = 0;
+                while (true) {
+                    header.clear();
+                    if (!readFully(channel, header, position)) {
+                        break;
+                    }
+                    int length = header.getInt(0);
+                    if (length < 0 || length > MAX_KEY_BYTES) {
+                        break;
+                    }
+                    ByteBuffer key = ByteBuffer.allocate(length);
+                    if (!readFully(channel, key, position + HEADER_BYTES)) {
+                        break;
+                    }
+                    CRC32 crc = new CRC32();
+                    crc.update(key.array());
+                    if ((int) crc.getValue() != header.getInt(4)) {
+                        break;
+                    }
+                    if (offset >= committed) {
+                        entries.add(new Entry(offset, new String(key.array(), StandardCharsets.UTF_8)));
+                    }
+                    offset++;
+                    position += HEADER_BYTES + length;
+                }
+                if (position < channel.size()) {
+                    System.out.println("[WARN] Webhook journal segment " + segment.getValue().getFileName()
+                            + " has " + (channel.size() - position) + " unreadable trailing bytes");
+                }
+                validBytes = position;
+            }
+            nextOffset = Math.max(nextOffset, offset);
+        }
+
+        if (segments.isEmpty()) {
+            segments.put(nextOffset, segmentPath(nextOffset));
+            validBytes = 0;
+        }
+        active = FileChannel.open(segments.lastEntry().getValue(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // A crash mid-write leaves a partial record; later appends must not follow it.
+        active.truncate(validBytes);
+        active.position(validBytes);
+        active.force(true);
+        syncedOffset = nextOffset;
+        unacknowledged = entries;
+        System.out.println("[INFO] Webhook journal in " + dir + ": " + entries.size()
+                + " unacknowledged event(s) from offset " + committed);
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void roll() throws IOException {
+        // Syncing here lets the sync thread treat the closed segment as done.
+        active.force(false);
+        active.close();
+        Path next = segmentPath(nextOffset);
+        segments.put(nextOffset, next);
+        active = FileChannel.open(next, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(long baseOffset) {
+        return dir.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+    }
+
+    private void syncLoop() {
+        while (true) {
+            FileChannel channel;
+            long target;
+            synchronized (this) {
+                while (!closed && syncedOffset == nextOffset) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed && syncedOffset == nextOffset) {
+                    return;
+                }
+                channel = active;
+                target = nextOffset;
+            }
+
+            // Appends continue into the page cache while this runs.
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // Rolled over, which synced it, or closed.
+            } catch (IOException e) {
+                System.out.println("[WARN] Webhook journal sync failed: " + e.getMessage());
+                synchronized (this) {
+                    syncFailure = e;
+                    notifyAll();
+                }
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            synchronized (this) {
+                syncedOffset = Math.max(syncedOffset, target);
+                syncFailure = null;
+                notifyAll();
+            }
+        }
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            System.out.println("[WARN] Could not write webhook journal checkpoint: " + e.getMessage());
+        }
+    }
+
+    /** Persists the committed offset, then deletes segments that lie entirely below it. */
+    private void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            long offset;
+            synchronized (this) {
+                offset = committed;
+            }
+            if (offset != checkpointed) {
+                writeCheckpoint(offset);
+            }
+        }
+    }
+
+    private void writeCheckpoint(long offset) throws IOException {
+        Path temp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(offset).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(temp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        checkpointed = offset;
+
+        List<Path> obsolete = new ArrayList<>();
+        synchronized (this) {
+            // A segment is done when the next one starts at or below the checkpoint.
+            while (segments.size() > 1 && segments.higherKey(segments.firstKey()) <= offset) {
+                obsolete.add(segments.pollFirstEntry().getValue());
+            }
+        }
+        for (Path segment : obsolete) {
+            Files.deleteIfExists(segment);
+        }
+    }
+
+    static final class Entry {
+        final long offset;
+        final String issueKey;
+
+        Entry(long offset, String issueKey) {
+            this.offset = offset;
+            this.issueKey = issueKey;
+        }
+    }
+}
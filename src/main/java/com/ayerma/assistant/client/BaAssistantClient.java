@@ -1,6 +1,9 @@
 package com.ayerma.assistant.client;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Interface for BA Assistant clients that can generate implementation plans
@@ -18,4 +21,30 @@ public interface BaAssistantClient {
      * @throws InterruptedException If the operation is interrupted
      */
     String runBaAssistant(String systemPrompt, String userPrompt) throws IOException, InterruptedException;
+
+    /**
+     * Asynchronous variant of {@link #runBaAssistant(String, String)}.
+     *
+     * The default implementation runs the blocking call on its own daemon thread;
+     * clients backed by non-blocking I/O should override it.
+     *
+     * @return A future completing with the generated output, or exceptionally
+     *         with the {@link IOException} the blocking call would have thrown
+     */
+    default CompletableFuture<String> runBaAssistantAsync(String systemPrompt, String userPrompt) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return runBaAssistant(systemPrompt, userPrompt);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, runnable -> {
+            Thread thread = new Thread(runnable, "ba-assistant-call");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
 }
@@ -0,0 +1,47 @@
+package com.ayerma.assistant.client;
+
+import com.ayerma.assistant.Env;
+import com.ayerma.assistant.HttpJson;
+import com.ayerma.assistant.client.cache.CachingBaAssistantClient;
+import com.ayerma.assistant.client.cli.GitHubCopilotCliClient;
+import com.ayerma.assistant.client.models.GitHubModelsClient;
+import com.ayerma.assistant.client.routing.ModelTask;
+import com.ayerma.assistant.client.routing.RoutingBaAssistantClient;
+
+/**
+ * Creates the {@link BaAssistantClient} the runners talk to, with the
+ * decorators enabled by the environment (see {@link CachingBaAssistantClient}
+ * and {@link RoutingBaAssistantClient}).
+ */
+public final class BaAssistantClients {
+    private BaAssistantClients() {
+    }
+
+    /**
+     * Client for GitHub Models; with a fallback chain or fast model configured,
+     * a {@link RoutingBaAssistantClient} over one cached client per model.
+     */
+    public static BaAssistantClient models(HttpJson http, String endpoint, String apiKey, String model,
+            ModelTask task) {
+        return RoutingBaAssistantClient.routeIfEnabled(task, model, name -> {
+            BaAssistantClient client = new GitHubModelsClient(http, endpoint, apiKey, name);
+            // The request parameters follow from the model, so endpoint and model identify the output.
+            return CachingBaAssistantClient.wrapIfEnabled(client, "models|" + endpoint + "|" + name, task);
+        });
+    }
+
+    /**
+     * Client for the Copilot CLI. It is cached only with COMPLETION_CACHE_CLI:
+     * the CLI runs tools against the checked-out repository, whose state is
+     * not part of the cache key, and a cache hit skips whatever the CLI would
+     * have done besides answering.
+     */
+    public static BaAssistantClient copilotCli(String cliCommand, ModelTask task) {
+        BaAssistantClient client = new GitHubCopilotCliClient(cliCommand);
+        if (!Env.optional("COMPLETION_CACHE_CLI", "false").equalsIgnoreCase("true")) {
+            return client;
+        }
+        return CachingBaAssistantClient.wrapIfEnabled(client,
+                "copilot-cli|" + cliCommand + "|" + Env.optional("CLI_MODEL", ""), task);
+    }
+}
@@ -0,0 +1,294 @@
+package com.ayerma.assistant.client.cache;
+
+import com.ayerma.assistant.Env;
+import com.ayerma.assistant.HttpJson;
+import com.ayerma.assistant.client.BaAssistantClient;
+import com.ayerma.assistant.client.routing.ModelTask;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves repeated completions from disk so a re-run workflow does not pay for
+ * the same model call twice.
+ *
+ * Entries are addressed by the SHA-256 of the delegate's identity (client
+ * kind, model and request parameters) and both prompts, and stored gzipped as
+ * {@code <dir>/<first two hex chars>/<hash>.json.gz}. A file's modification
+ * time records its last use: hits touch it, and when the directory grows past
+ * its size limit the least recently used files are removed. Entries older
+ * than the TTL (counted from creation) are misses. The directory's size is
+ * scanned once and then tracked as entries are written; it is only walked
+ * again when the total goes over the limit.
+ *
+ * Only answers the task accepts (see {@link ModelTask#accepts(String)}) are
+ * stored, so an empty or broken answer is not replayed on the next run. With
+ * COMPLETION_CACHE_REFRESH, entries are not read but still written, which
+ * replaces entries a runner rejected for reasons the cache cannot see.
+ *
+ * Cache failures are logged and treated as misses; they never fail a call.
+ */
+public final class CachingBaAssistantClient implements BaAssistantClient {
+    // Bumped when the key derivation or file format changes, so old entries stop matching.
+    private static final String FORMAT_VERSION = "1";
+    // One per directory: the clients of a routing chain share the cache directory.
+    private static final Map<Path, Usage> USAGE = new ConcurrentHashMap<>();
+
+    private final BaAssistantClient delegate;
+    private final String identity;
+    private final ModelTask task;
+    private final Path dir;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final boolean refresh;
+    private final Usage usage;
+
+    public CachingBaAssistantClient(BaAssistantClient delegate, String identity, ModelTask task, Path dir,
+            long maxBytes, Duration ttl, boolean refresh) {
+        this.delegate = delegate;
+        this.identity = identity;
+        this.task = task;
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttl.toMillis();
+        this.refresh = refresh;
+        this.usage = USAGE.computeIfAbsent(dir.toAbsolutePath().normalize(), key -> new Usage(key, maxBytes));
+    }
+
+    /**
+     * Wraps the client when COMPLETION_CACHE_DIR is set; returns it unchanged
+     * otherwise.
+     *
+     * - COMPLETION_CACHE_DIR: cache directory (unset: caching off)
+     * - COMPLETION_CACHE_MAX_MB: size limit before LRU eviction (default 256)
+     * - COMPLETION_CACHE_TTL_HOURS: entry lifetime (default 168, one week)
+     * - COMPLETION_CACHE_REFRESH: true to skip reading entries and store fresh answers (default false)
+     *
+     * @param identity everything besides the prompts that shapes the output,
+     *                 e.g. endpoint, model and request parameters
+     * @param task     decides which answers are worth storing
+     */
+    public static BaAssistantClient wrapIfEnabled(BaAssistantClient delegate, String identity, ModelTask task) {
+        String dir = Env.optional("COMPLETION_CACHE_DIR", null);
+        if (dir == null || dir.isBlank()) {
+            return delegate;
+        }
+        long maxBytes = Long.parseLong(Env.optional("COMPLETION_CACHE_MAX_MB", "256")) * 1024L * 1024L;
+        Duration ttl = Duration.ofHours(Long.parseLong(Env.optional("COMPLETION_CACHE_TTL_HOURS", "168")));
+        boolean refresh = Boolean.parseBoolean(Env.optional("COMPLETION_CACHE_REFRESH", "false"));
+        System.out.println("[DEBUG] Completion cache " + (refresh ? "refreshing" : "enabled") + " at " + dir
+                + " (" + identity + ")");
+        return new CachingBaAssistantClient(delegate, identity, task, Path.of(dir), maxBytes, ttl, refresh);
+    }
+
+    @Override
+    public String runBaAssistant(String systemPrompt, String userPrompt) throws IOException, InterruptedException {
+        String key = key(systemPrompt, userPrompt);
+        String cached = read(key);
+        if (cached != null) {
+            return cached;
+        }
+        String output = delegate.runBaAssistant(systemPrompt, userPrompt);
+        write(key, output);
+        return output;
+    }
+
+    @Override
+    public CompletableFuture<String> runBaAssistantAsync(String systemPrompt, String userPrompt) {
+        String key = key(systemPrompt, userPrompt);
+        String cached = read(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<String> call = delegate.runBaAssistantAsync(systemPrompt, userPrompt);
+        return HttpJson.propagateCancellation(call, call.thenApply(output -> {
+            write(key, output);
+            return output;
+        }));
+    }
+
+    private String key(String systemPrompt, String userPrompt) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            // Length prefixes keep ("ab", "c") and ("a", "bc") apart.
+            for (String part : new String[] { FORMAT_VERSION, identity, systemPrompt, userPrompt }) {
+                byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+                sha256.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+                sha256.update((byte) ':');
+                sha256.update(bytes);
+            }
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private Path fileFor(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".json.gz");
+    }
+
+    private String read(String key) {
+        if (refresh) {
+            return null;
+        }
+        Path file = fileFor(key);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            JsonNode stored = HttpJson.MAPPER.readTree(in);
+            long createdAt = stored.path("createdAt").asLong(0);
+            if (System.currentTimeMillis() - createdAt > ttlMillis) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            JsonNode output = stored.get("output");
+            if (output == null || !output.isTextual()) {
+                return null;
+            }
+            // Mark as recently used for eviction.
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            System.out.println("[DEBUG] Completion cache hit: " + key.substring(0, 12));
+            return output.asText();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.out.println("[WARN] Ignoring unreadable completion cache file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(String key, String output) {
+        if (!task.accepts(output)) {
+            System.out.println("[DEBUG] Not caching unusable " + task + " answer: " + key.substring(0, 12));
+            return;
+        }
+        ObjectNode stored = HttpJson.MAPPER.createObjectNode();
+        stored.put("createdAt", System.currentTimeMillis());
+        stored.put("identity", identity);
+        stored.put("output", output);
+
+        Path file = fileFor(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "completion", ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                HttpJson.MAPPER.writeValue(out, stored);
+            }
+            long replaced = Files.exists(file) ? sizeOf(file) : 0;
+            long written = Files.size(tmp);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("[DEBUG] Completion cache stored: " + key.substring(0, 12));
+            usage.record(written - replaced);
+        } catch (IOException e) {
+            System.out.println("[WARN] Could not write completion cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Running size of a cache directory. The first write scans it; later
+     * writes add their size, and only a total over the limit walks the
+     * directory again, to evict and to correct the count (entries expired on
+     * read or written by other processes are not tracked in between).
+     */
+    private static final class Usage {
+        private final Path dir;
+        private final long maxBytes;
+        private long bytes = -1;
+
+        private Usage(Path dir, long maxBytes) {
+            this.dir = dir;
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized void record(long delta) throws IOException {
+            if (bytes < 0) {
+                bytes = scan(new ArrayList<>());
+            } else {
+                bytes += delta;
+            }
+            if (bytes > maxBytes) {
+                bytes = evict();
+            }
+        }
+
+        /** Adds every entry to {@code files} and returns their total size. */
+        private long scan(List<Path> files) throws IOException {
+            long total = 0;
+            try (Stream<Path> walk = Files.walk(dir)) {
+                for (Path file : (Iterable<Path>) walk.filter(p -> p.toString().endsWith(".json.gz"))::iterator) {
+                    files.add(file);
+                    total += sizeOf(file);
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Drops least recently used entries until the cache is back under 90%
+         * of its limit.
+         *
+         * @return the size of the entries left
+         */
+        private long evict() throws IOException {
+            List<Path> files = new ArrayList<>();
+            long total = scan(files);
+            if (total <= maxBytes) {
+                return total;
+            }
+
+            files.sort(Comparator.comparingLong(CachingBaAssistantClient::lastModifiedMillis));
+            long target = maxBytes * 9 / 10;
+            int removed = 0;
+            for (Path file : files) {
+                if (total <= target) {
+                    break;
+                }
+                long size = sizeOf(file);
+                if (Files.deleteIfExists(file)) {
+                    total -= size;
+                    removed++;
+                }
+            }
+            System.out.println("[DEBUG] Completion cache evicted " + removed + " entries");
+            return total;
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            // Removed meanwhile (eviction by another process): nothing to count.
+            return 0;
+        }
+    }
+
+    private static long lastModifiedMillis(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            // Already gone: sort it first, deleting it is a no-op.
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.ayerma.assistant.client.cli;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a few CLI processes started ahead of time, so a call finds the CLI
+ * already loaded and only has to write the prompt to its stdin.
+ *
+ * Nothing is started up front: the first {@link #take()} starts its process
+ * directly, so a runner that makes one call never pays for an unused worker.
+ * From the second call on, each take starts a replacement in the background,
+ * up to {@code size} waiting workers. Workers that died while waiting are
+ * skipped, and all waiting workers are destroyed when the JVM exits.
+ */
+final class CliWorkerPool {
+    private final Supplier<ProcessBuilder> launcher;
+    private final int size;
+    private final BlockingQueue<Process> standby = new LinkedBlockingQueue<>();
+    private final ExecutorService spawner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cli-worker-spawner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean used = new AtomicBoolean();
+    private volatile boolean closed;
+
+    CliWorkerPool(Supplier<ProcessBuilder> launcher, int size) {
+        this.launcher = launcher;
+        this.size = size;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "cli-worker-pool-shutdown"));
+        System.out.println("[INFO] Keeping up to " + size + " warm CLI worker(s) once the CLI is called again");
+    }
+
+    /** A started CLI waiting for its prompt on stdin. */
+    Process take() throws IOException {
+        Process worker;
+        while ((worker = standby.poll()) != null && !worker.isAlive()) {
+            System.out.println("[WARN] Warm CLI worker " + worker.pid() + " exited while idle (code "
+                    + worker.exitValue() + ")");
+        }
+        if (used.getAndSet(true)) {
+            // Called before: expect more calls and have a worker ready for the next one.
+            spawner.execute(this::spawnStandby);
+        }
+        if (worker != null) {
+            System.out.println("[DEBUG] Using warm CLI worker " + worker.pid());
+            return worker;
+        }
+        System.out.println("[DEBUG] No warm CLI worker ready - starting one");
+        return launcher.get().start();
+    }
+
+    void close() {
+        closed = true;
+        spawner.shutdownNow();
+        Process worker;
+        while ((worker = standby.poll()) != null) {
+            worker.destroy();
+        }
+    }
+
+    private void spawnStandby() {
+        if (closed || standby.size() >= size) {
+            return;
+        }
+        try {
+            standby.add(launcher.get().start());
+        } catch (IOException e) {
+            System.out.println("[WARN] Could not start warm CLI worker: " + e.getMessage());
+        }
+    }
+}
@@ -1,29 +1,66 @@
 package com.ayerma.assistant.client.cli;
 
+import com.ayerma.assistant.Env;
 import com.ayerma.assistant.client.BaAssistantClient;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Client that uses GitHub Copilot CLI to generate BA implementation plans.
  */
 public final class GitHubCopilotCliClient implements BaAssistantClient {
+    private static final long TERMINATE_GRACE_SECONDS = 5;
+    private static final int MAX_LOGGED_OUTPUT = 2000;
+
     private final String cliCommand;
     private final String cliModel;
+    private final long timeoutSeconds;
+    private final boolean stopOnJson;
+    private final PromptTransport transport;
+    // CLI_PROMPT_TRANSPORT=file: the CLI option that takes the prompt file path.
+    private final String promptFileFlag;
+    // CLI_POOL_SIZE > 0 with the stdin transport: prompts go to CLI processes started ahead of time.
+    private final CliWorkerPool pool;
 
     public GitHubCopilotCliClient(String cliCommand) {
         this.cliCommand = cliCommand;
         this.cliModel = System.getenv("CLI_MODEL");
+        this.timeoutSeconds = Long.parseLong(Env.optional("CLI_TIMEOUT_SECONDS", "300"));
+        this.stopOnJson = Env.optional("CLI_STOP_ON_JSON", "false").equalsIgnoreCase("true");
+        this.transport = PromptTransport.fromEnv();
+        this.promptFileFlag = transport == PromptTransport.FILE ? Env.required("CLI_PROMPT_FILE_FLAG") : null;
+        int poolSize = Integer.parseInt(Env.optional("CLI_POOL_SIZE", "0"));
+        if (poolSize > 0 && transport != PromptTransport.STDIN) {
+            // With argv or file the prompt is part of the command line, so the CLI cannot start before it.
+            System.out.println("[WARN] CLI_POOL_SIZE needs CLI_PROMPT_TRANSPORT=stdin - starting the CLI per call");
+            poolSize = 0;
+        }
+        this.pool = poolSize > 0 ? new CliWorkerPool(() -> streamedProcess(null), poolSize) : null;
     }
 
     @Override
     public String runBaAssistant(String systemPrompt, String userPrompt) throws IOException, InterruptedException {
+        if (pool != null) {
+            return runOnWorker(systemPrompt, userPrompt);
+        }
+        if (transport != PromptTransport.ARGV) {
+            return runStreamed(systemPrompt, userPrompt);
+        }
+
         // Combine system and user prompts into a single prompt for CLI
         String combinedPrompt = systemPrompt + "\n\n" + userPrompt;
 
@@ -38,17 +75,9 @@ public final class GitHubCopilotCliClient implements BaAssistantClient {
         command.add(combinedPrompt);
 
         ProcessBuilder pb = new ProcessBuilder(command);
-        pb.redirectErrorStream(true);
 
         // Pass authentication token to CLI process
-        // Copilot CLI accepts COPILOT_GITHUB_TOKEN, GH_TOKEN, or GITHUB_TOKEN
-        String authToken = System.getenv("COPILOT_GITHUB_TOKEN");
-        if (authToken == null || authToken.isEmpty()) {
-            authToken = System.getenv("GH_TOKEN");
-        }
-        if (authToken == null || authToken.isEmpty()) {
-            authToken = System.getenv("GITHUB_TOKEN");
-        }
+        String authToken = authToken();
 
         if (authToken != null && !authToken.isEmpty()) {
             // Run command through shell with explicit export to ensure env vars are visible
@@ -64,8 +93,6 @@ public final class GitHubCopilotCliClient implements BaAssistantClient {
                             : cliCommand + " --allow-all-tools -p \"$PROMPT\""));
             pb = new ProcessBuilder(command);
             pb.environment().put("PROMPT", combinedPrompt);
-            pb.redirectErrorStream(true);
-
             System.out.println("[INFO] Authentication token provided (length: " + authToken.length() + " chars)");
             System.out.println("[INFO] Running via bash with exported env vars");
         } else {
@@ -82,9 +109,58 @@ public final class GitHubCopilotCliClient implements BaAssistantClient {
         commandDescription.append("--allow-all-tools -p \"<prompt>\"");
         System.out.println(commandDescription);
 
-        Process process;
+        return awaitOutput(start(pb), null);
+    }
+
+    /**
+     * Runs the CLI with the prompt streamed over stdin, or written to a
+     * temporary file passed with CLI_PROMPT_FILE_FLAG, so large prompts are
+     * not bound by argv and environment size limits.
+     */
+    private String runStreamed(String systemPrompt, String userPrompt) throws IOException, InterruptedException {
+        Path promptFile = transport == PromptTransport.FILE ? writePromptFile(systemPrompt, userPrompt) : null;
+        try {
+            ProcessBuilder pb = streamedProcess(promptFile);
+            String authToken = authToken();
+            if (authToken == null || authToken.isEmpty()) {
+                System.out.println(
+                        "[WARN] No authentication token found in COPILOT_GITHUB_TOKEN, GH_TOKEN, or GITHUB_TOKEN");
+            }
+            System.out.println("[INFO] Executing CLI command: " + cliCommand
+                    + (cliModel != null && !cliModel.isBlank() ? " --model " + cliModel : "")
+                    + " --allow-all-tools " + transport.placeholder(promptFileFlag));
+
+            Process process = start(pb);
+            return awaitOutput(process, promptFile != null ? null
+                    : stdin -> writePrompt(stdin, systemPrompt, userPrompt));
+        } finally {
+            if (promptFile != null) {
+                Files.deleteIfExists(promptFile);
+            }
+        }
+    }
+
+    /** The CLI reading its prompt from stdin, or from {@code promptFile} when given. */
+    private ProcessBuilder streamedProcess(Path promptFile) {
+        List<String> command = new ArrayList<>();
+        command.add(cliCommand);
+        if (cliModel != null && !cliModel.isBlank()) {
+            command.add("--model");
+            command.add(cliModel);
+        }
+        command.add("--allow-all-tools");
+        if (promptFile != null) {
+            command.add(promptFileFlag);
+            command.add(promptFile.toString());
+        }
+        ProcessBuilder pb = new ProcessBuilder(command);
+        putAuthToken(pb.environment());
+        return pb;
+    }
+
+    private Process start(ProcessBuilder pb) throws IOException {
         try {
-            process = pb.start();
+            return pb.start();
         } catch (IOException e) {
             throw new IOException(
                     "Failed to execute CLI command '" + cliCommand + "'. " +
@@ -93,34 +169,198 @@ public final class GitHubCopilotCliClient implements BaAssistantClient {
                             "Original error: " + e.getMessage(),
                     e);
         }
+    }
 
-        // Read the output
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
+    /**
+     * Writes the prompt to a CLI process started ahead of time, which has
+     * loaded and is blocked reading stdin.
+     */
+    private String runOnWorker(String systemPrompt, String userPrompt) throws IOException, InterruptedException {
+        Process process;
+        try {
+            process = pool.take();
+        } catch (IOException e) {
+            throw new IOException("Failed to execute CLI command '" + cliCommand + "'. "
+                    + "Make sure GitHub Copilot CLI is installed and accessible in PATH. "
+                    + "Original error: " + e.getMessage(), e);
         }
+        System.out.println("[INFO] Executing CLI command on worker " + process.pid() + ": " + cliCommand
+                + (cliModel != null && !cliModel.isBlank() ? " --model " + cliModel : "")
+                + " --allow-all-tools " + transport.placeholder(promptFileFlag));
+        return awaitOutput(process, stdin -> writePrompt(stdin, systemPrompt, userPrompt));
+    }
 
-        // Wait for process to complete with timeout
-        boolean finished = process.waitFor(5, TimeUnit.MINUTES);
-        if (!finished) {
-            process.destroyForcibly();
-            throw new IOException("CLI command timed out after 5 minutes");
+    /** Writes the prompt parts straight to {@code out}, without joining them into one string first. */
+    private static void writePrompt(Writer out, String systemPrompt, String userPrompt) throws IOException {
+        out.write(systemPrompt);
+        out.write("\n\n");
+        out.write(userPrompt);
+    }
+
+    private static Path writePromptFile(String systemPrompt, String userPrompt) throws IOException {
+        // Created readable by the owner only, as the prompt may hold issue content.
+        Path file = Files.createTempFile("cli-prompt-", ".txt");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writePrompt(writer, systemPrompt, userPrompt);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    private static void putAuthToken(Map<String, String> environment) {
+        String authToken = authToken();
+        if (authToken == null || authToken.isEmpty()) {
+            return;
+        }
+        environment.put("GITHUB_TOKEN", authToken);
+        environment.put("GH_TOKEN", authToken);
+        environment.put("COPILOT_GITHUB_TOKEN", authToken);
+    }
+
+    // Copilot CLI accepts COPILOT_GITHUB_TOKEN, GH_TOKEN, or GITHUB_TOKEN
+    private static String authToken() {
+        String authToken = System.getenv("COPILOT_GITHUB_TOKEN");
+        if (authToken == null || authToken.isEmpty()) {
+            authToken = System.getenv("GH_TOKEN");
+        }
+        if (authToken == null || authToken.isEmpty()) {
+            authToken = System.getenv("GITHUB_TOKEN");
+        }
+        return authToken;
+    }
+
+    /**
+     * Waits for the CLI with a hard deadline while stdout and stderr are read
+     * on their own threads, so a chatty or hung CLI cannot block past
+     * CLI_TIMEOUT_SECONDS. With CLI_STOP_ON_JSON, returns as soon as stdout
+     * holds a complete JSON object and terminates the CLI.
+     */
+    private String awaitOutput(Process process, PromptWriter input) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        ProcessOutput stdout = ProcessOutput.drain(process.getInputStream(), "cli-stdout-" + process.pid(),
+                stopOnJson);
+        ProcessOutput stderr = ProcessOutput.drain(process.getErrorStream(), "cli-stderr-" + process.pid(), false);
+        feed(process, input);
+
+        CompletableFuture<?> done = stopOnJson
+                ? CompletableFuture.anyOf(process.onExit(), stdout.firstJsonObject())
+                : process.onExit();
+        try {
+            done.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            terminate(process);
+            throw new IOException("CLI command timed out after " + timeoutSeconds + " seconds: "
+                    + tail(stdout.text() + stderr.text()));
+        } catch (ExecutionException e) {
+            // Nothing may be reading the CLI's output any more; do not leave it running.
+            terminate(process);
+            throw new IOException("CLI command failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            terminate(process);
+            throw e;
+        }
+
+        if (stopOnJson && stdout.firstJsonObject().isDone() && process.isAlive()) {
+            System.out.println("[INFO] CLI returned a complete JSON object - stopping process " + process.pid());
+            terminate(process);
+            return stdout.firstJsonObject().join();
+        }
+
+        // The process is gone; its output may still be in the pipes.
+        long remainingNanos = Math.max(deadline - System.nanoTime(), TimeUnit.SECONDS.toNanos(1));
+        try {
+            CompletableFuture.allOf(stdout.closed(), stderr.closed()).get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // A leftover child process holds the pipe open; use what was read.
+            System.out.println("[WARN] CLI output still open after exit - using output read so far");
         }
 
         int exitCode = process.exitValue();
         if (exitCode != 0) {
-            throw new IOException("CLI command failed with exit code " + exitCode + ": " + output);
+            throw new IOException("CLI command failed with exit code " + exitCode + ": " + stdout.text()
+                    + stderr.text());
+        }
+        String errors = stderr.text().trim();
+        if (!errors.isEmpty()) {
+            System.out.println("[DEBUG] CLI stderr: " + tail(errors));
         }
 
-        String result = output.toString().trim();
+        String result = stdout.text().trim();
         if (result.isEmpty()) {
             throw new IOException("CLI command returned empty output");
         }
 
         return result;
     }
+
+    /**
+     * Writes {@code input} (if any) to the process's stdin and closes it. This
+     * runs on its own thread, so a CLI that stops reading cannot hold the
+     * caller past the deadline.
+     */
+    private static void feed(Process process, PromptWriter input) {
+        Thread thread = new Thread(() -> {
+            try (Writer stdin = new BufferedWriter(
+                    new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8))) {
+                if (input != null) {
+                    input.writeTo(stdin);
+                }
+            } catch (IOException e) {
+                // The CLI exited or was stopped first; its exit code or the timeout reports why.
+                System.out.println("[WARN] Could not write the prompt to the CLI: " + e.getMessage());
+            }
+        }, "cli-stdin-" + process.pid());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // The CLI may run tools as child processes; stop those too.
+    private static void terminate(Process process) throws InterruptedException {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        if (!process.waitFor(TERMINATE_GRACE_SECONDS, TimeUnit.SECONDS)) {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+    }
+
+    private static String tail(String text) {
+        return text.length() <= MAX_LOGGED_OUTPUT ? text : "..." + text.substring(text.length() - MAX_LOGGED_OUTPUT);
+    }
+
+    private interface PromptWriter {
+        void writeTo(Writer stdin) throws IOException;
+    }
+
+    /** How the prompt reaches the CLI, from CLI_PROMPT_TRANSPORT. */
+    private enum PromptTransport {
+        // -p <prompt>; simple, but bound by argv and environment size limits.
+        ARGV,
+        // Prompt on stdin, for CLIs that read it when no -p is given.
+        STDIN,
+        // Prompt in a temporary file passed with CLI_PROMPT_FILE_FLAG.
+        FILE;
+
+        static PromptTransport fromEnv() {
+            String value = Env.optional("CLI_PROMPT_TRANSPORT", "argv");
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("CLI_PROMPT_TRANSPORT must be argv, stdin or file, got: " + value);
+            }
+        }
+
+        String placeholder(String promptFileFlag) {
+            switch (this) {
+                case STDIN:
+                    return "< <prompt>";
+                case FILE:
+                    return promptFileFlag + " <prompt file>";
+                default:
+                    return "-p \"<prompt>\"";
+            }
+        }
+    }
 }
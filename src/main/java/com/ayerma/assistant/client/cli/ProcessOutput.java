@@ -0,0 +1,117 @@
+package com.ayerma.assistant.client.cli;
+
+import com.ayerma.assistant.HttpJson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads one output stream of a process on its own daemon thread, so the
+ * caller can wait on the process with a deadline instead of blocking on the
+ * stream. Optionally watches for the first complete top-level JSON object.
+ */
+final class ProcessOutput {
+    private final StringBuilder text = new StringBuilder();
+    private final CompletableFuture<Void> closed = new CompletableFuture<>();
+    private final CompletableFuture<String> firstJsonObject = new CompletableFuture<>();
+    private final boolean watchJson;
+
+    // Brace matching state; braces inside JSON strings do not count.
+    private int depth;
+    private int objectStart = -1;
+    private boolean inString;
+    private boolean escaped;
+
+    private ProcessOutput(boolean watchJson) {
+        this.watchJson = watchJson;
+    }
+
+    static ProcessOutput drain(InputStream stream, String name, boolean watchJson) {
+        ProcessOutput output = new ProcessOutput(watchJson);
+        Thread thread = new Thread(() -> output.read(stream), name);
+        thread.setDaemon(true);
+        thread.start();
+        return output;
+    }
+
+    /** Completes when the stream reaches EOF or fails. */
+    CompletableFuture<Void> closed() {
+        return closed;
+    }
+
+    /**
+     * Completes with the first balanced {...} that parses as JSON; never
+     * completes when not watching or when no such object appears.
+     */
+    CompletableFuture<String> firstJsonObject() {
+        return firstJsonObject;
+    }
+
+    synchronized String text() {
+        return text.toString();
+    }
+
+    private void read(InputStream stream) {
+        char[] buffer = new char[8192];
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                append(buffer, count);
+            }
+        } catch (IOException e) {
+            // Stream closed because the process was terminated; keep what was read.
+        } finally {
+            closed.complete(null);
+        }
+    }
+
+    private synchronized void append(char[] buffer, int count) {
+        int offset = text.length();
+        text.append(buffer, 0, count);
+        if (!watchJson || firstJsonObject.isDone()) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            scan(buffer[i], offset + i);
+        }
+    }
+
+    private void scan(char c, int index) {
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+            }
+            return;
+        }
+        if (c == '"' && depth > 0) {
+            inString = true;
+        } else if (c == '{') {
+            if (depth++ == 0) {
+                objectStart = index;
+            }
+        } else if (c == '}' && depth > 0 && --depth == 0) {
+            String candidate = text.substring(objectStart, index + 1);
+            // Prose like "{file}" balances too; only real JSON ends the wait.
+            if (isJson(candidate)) {
+                firstJsonObject.complete(candidate);
+            }
+        }
+    }
+
+    private static boolean isJson(String candidate) {
+        try {
+            HttpJson.MAPPER.readTree(candidate);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -1,70 +1,228 @@
 package com.ayerma.assistant.client.models;
 
+import com.ayerma.assistant.ConcurrencyLimiter;
+import com.ayerma.assistant.Env;
 import com.ayerma.assistant.HttpJson;
+import com.ayerma.assistant.RateLimiter;
+import com.ayerma.assistant.RetryPolicy;
+import com.ayerma.assistant.TokenEstimator;
 import com.ayerma.assistant.client.BaAssistantClient;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpRequest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public final class GitHubModelsClient implements BaAssistantClient {
     private final HttpJson http;
     private final String endpoint;
     private final String apiKey;
     private final String model;
+    // MODELS_STREAM: receive completions as server-sent events instead of one response.
+    private final boolean stream;
+    // Null unless MODELS_HEDGE is on; hedges go to MODELS_HEDGE_ENDPOINT / MODELS_HEDGE_MODEL when set.
+    private final RequestHedger hedger;
+    private final String hedgeEndpoint;
+    private final String hedgeApiKey;
+    private final String hedgeModel;
 
     public GitHubModelsClient(HttpJson http, String endpoint, String apiKey, String model) {
-        this.http = http;
+        // Chat completions have no side effects, so even POSTs are safe to repeat.
+        this.http = http.withRetryPolicy(RetryPolicy.fromEnv("MODELS").withNonIdempotentRetries(true));
         this.endpoint = endpoint;
         this.apiKey = apiKey;
         this.model = model;
+        this.stream = Env.optional("MODELS_STREAM", "false").equalsIgnoreCase("true");
+        this.hedger = RequestHedger.fromEnv(endpoint + "|" + model);
+        this.hedgeEndpoint = Env.optional("MODELS_HEDGE_ENDPOINT", endpoint);
+        this.hedgeApiKey = Env.optional("MODELS_HEDGE_TOKEN", apiKey);
+        this.hedgeModel = Env.optional("MODELS_HEDGE_MODEL", model);
+        RateLimiter.configureFromEnv(URI.create(endpoint).getHost(), "MODELS", "0", "1");
+        // Without streaming the headers arrive after the whole generation, which is not a load signal.
+        ConcurrencyLimiter.configureFromEnv(URI.create(endpoint).getHost(), "MODELS", stream);
+        if (hedger != null && !hedgeEndpoint.equals(endpoint)) {
+            RateLimiter.configureFromEnv(URI.create(hedgeEndpoint).getHost(), "MODELS", "0", "1");
+            ConcurrencyLimiter.configureFromEnv(URI.create(hedgeEndpoint).getHost(), "MODELS", stream);
+        }
     }
 
     /**
      * Calls a Chat Completions compatible endpoint.
      *
      * Defaults are aimed at GitHub Models (Azure AI Inference compatible).
-     * Reasoning models (o1, o3, o4-mini, etc.) have strict restrictions:
-     *   - No temperature parameter (only default=1 supported)
-     *   - No response_format json_object
-     *   - No "system" role — use "developer" role instead
+     * The request shape follows the model's {@link ModelCapabilities}.
      */
     @Override
     public String runBaAssistant(String systemPrompt, String userPrompt) throws IOException, InterruptedException {
-        // Reasoning models (o1, o3, o4...) have strict API restrictions.
-        boolean isReasoningModel = model.matches("(?i)^o\\d.*");
+        return HttpJson.await(runBaAssistantAsync(systemPrompt, userPrompt));
+    }
+
+    @Override
+    public CompletableFuture<String> runBaAssistantAsync(String systemPrompt, String userPrompt) {
+        if (hedger == null) {
+            return completeAsync(endpoint, apiKey, model, systemPrompt, userPrompt);
+        }
+        return hedger.call(() -> completeAsync(endpoint, apiKey, model, systemPrompt, userPrompt),
+                () -> completeAsync(hedgeEndpoint, hedgeApiKey, hedgeModel, systemPrompt, userPrompt));
+    }
+
+    private CompletableFuture<String> completeAsync(String endpoint, String apiKey, String model,
+            String systemPrompt, String userPrompt) {
+        if (stream) {
+            return streamAsync(endpoint, apiKey, model, systemPrompt, userPrompt, token -> {
+            });
+        }
+
+        HttpRequest request = chatRequest(endpoint, apiKey, chatPayload(model, systemPrompt, userPrompt));
+        CompletableFuture<JsonNode> call = http.postJsonAsync(request, estimateTokens(systemPrompt, userPrompt));
+        return HttpJson.propagateCancellation(call, call.thenApply(response -> {
+            JsonNode content = response.at("/choices/0/message/content");
+            if (content.isMissingNode() || content.isNull()) {
+                throw new UncheckedIOException(
+                        new IOException("Unexpected model response shape: missing choices[0].message.content"));
+            }
+            return content.asText();
+        }));
+    }
+
+    /**
+     * Streams the completion ({@code stream: true}) and passes each content
+     * delta to {@code onToken} as it arrives, on an HTTP body thread.
+     *
+     * @return a future completing with the whole content once the model has
+     *         finished; a stream that ends without a finish_reason fails it
+     */
+    public CompletableFuture<String> streamBaAssistantAsync(String systemPrompt, String userPrompt,
+            Consumer<String> onToken) {
+        return streamAsync(endpoint, apiKey, model, systemPrompt, userPrompt, onToken);
+    }
+
+    private CompletableFuture<String> streamAsync(String endpoint, String apiKey, String model, String systemPrompt,
+            String userPrompt, Consumer<String> onToken) {
+        ObjectNode payload = chatPayload(model, systemPrompt, userPrompt);
+        payload.put("stream", true);
+
+        ChatStream chatStream = new ChatStream(onToken);
+        CompletableFuture<Void> call = http.streamLinesAsync(chatRequest(endpoint, apiKey, payload),
+                estimateTokens(systemPrompt, userPrompt), chatStream);
+        return HttpJson.propagateCancellation(call, call.thenApply(done -> chatStream.finish()));
+    }
+
+    private static ObjectNode chatPayload(String model, String systemPrompt, String userPrompt) {
+        ModelCapabilities capabilities = ModelCapabilities.of(model);
 
         ObjectNode payload = HttpJson.MAPPER.createObjectNode();
         payload.put("model", model);
 
         ArrayNode messages = payload.putArray("messages");
-        if (isReasoningModel) {
-            // o-series models use "developer" role instead of "system"
-            messages.addObject().put("role", "developer").put("content", systemPrompt);
-        } else {
-            messages.addObject().put("role", "system").put("content", systemPrompt);
-            // Encourage strict JSON output (not supported by reasoning models)
+        messages.addObject().put("role", capabilities.systemRole()).put("content", systemPrompt);
+        if (capabilities.supportsJsonMode()) {
+            // Encourage strict JSON output
             payload.putObject("response_format").put("type", "json_object");
         }
         messages.addObject().put("role", "user").put("content", userPrompt);
+        return payload;
+    }
 
+    private static HttpRequest chatRequest(String endpoint, String apiKey, ObjectNode payload) {
         URI uri = URI.create(endpoint + "/chat/completions");
 
-        HttpRequest request = HttpJson.baseRequest(uri)
+        return HttpJson.baseRequest(uri)
                 .header("Content-Type", "application/json")
                 // GitHub Models uses api-key header on the Azure AI Inference endpoint.
                 .header("api-key", apiKey)
                 .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
                 .build();
+    }
+
+    /** Prompt size for the token rate limiter (see {@link TokenEstimator}). */
+    private static long estimateTokens(String systemPrompt, String userPrompt) {
+        return TokenEstimator.estimate(systemPrompt) + TokenEstimator.estimate(userPrompt);
+    }
+
+    /**
+     * Assembles a chat completion from its server-sent events. Events are
+     * "data:" lines ended by a blank line; the stream ends with "data: [DONE]".
+     */
+    private static final class ChatStream implements Consumer<String> {
+        private final Consumer<String> onToken;
+        private final StringBuilder content = new StringBuilder();
+        private final StringBuilder data = new StringBuilder();
+        private final long startedAt = System.nanoTime();
+        private String finishReason;
+        private boolean firstToken = true;
+
+        private ChatStream(Consumer<String> onToken) {
+            this.onToken = onToken;
+        }
+
+        @Override
+        public void accept(String line) {
+            if (line.isEmpty()) {
+                dispatch();
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+            }
+            // Comments (":") and other SSE fields carry nothing we use.
+        }
+
+        private void dispatch() {
+            if (data.length() == 0) {
+                return;
+            }
+            String event = data.toString();
+            data.setLength(0);
+            if (event.equals("[DONE]")) {
+                return;
+            }
+
+            JsonNode chunk;
+            try {
+                chunk = HttpJson.MAPPER.readTree(event);
+            } catch (IOException e) {
+                throw new UncheckedIOException(new IOException("Malformed model stream event: " + event, e));
+            }
+            if (chunk.hasNonNull("error")) {
+                throw new UncheckedIOException(new IOException("Model stream error: " + chunk.get("error")));
+            }
+
+            // Usage-only chunks have no choices.
+            JsonNode choice = chunk.path("choices").path(0);
+            JsonNode delta = choice.at("/delta/content");
+            if (delta.isTextual() && !delta.asText().isEmpty()) {
+                if (firstToken) {
+                    firstToken = false;
+                    System.out.println("[DEBUG] Model stream: first token after "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) + " ms");
+                }
+                content.append(delta.asText());
+                onToken.accept(delta.asText());
+            }
+            if (choice.hasNonNull("finish_reason")) {
+                finishReason = choice.get("finish_reason").asText();
+            }
+        }
 
-        JsonNode response = http.postJson(request);
-        JsonNode content = response.at("/choices/0/message/content");
-        if (content.isMissingNode() || content.isNull()) {
-            throw new IOException("Unexpected model response shape: missing choices[0].message.content");
+        private String finish() {
+            // A last event without the trailing blank line.
+            dispatch();
+            if (finishReason == null) {
+                throw new UncheckedIOException(new IOException(
+                        "Model stream ended early (missing finish_reason) after " + content.length() + " chars"));
+            }
+            System.out.println("[DEBUG] Model stream: finished (" + finishReason + ") after "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) + " ms, "
+                    + content.length() + " chars");
+            return content.toString();
         }
-        return content.asText();
     }
 }
@@ -0,0 +1,87 @@
+package com.ayerma.assistant.client.models;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What a chat model accepts and how much it can read. Known models are
+ * matched by the longest name prefix, ignoring a publisher prefix such as
+ * "openai/"; unknown models get a 128k context and are treated as reasoning
+ * models when named like the o-series ("o" and a digit), as regular chat models
+ * otherwise.
+ *
+ * Reasoning models (o1, o3, o4-mini, ...) have strict API restrictions:
+ *   - No temperature parameter (only default=1 supported)
+ *   - No response_format json_object
+ *   - No "system" role — use "developer" role instead
+ */
+public final class ModelCapabilities {
+    private static final ModelCapabilities DEFAULT = new ModelCapabilities(false, 128_000);
+    private static final ModelCapabilities DEFAULT_REASONING = new ModelCapabilities(true, 128_000);
+    private static final Map<String, ModelCapabilities> KNOWN = new LinkedHashMap<>();
+
+    static {
+        KNOWN.put("gpt-4o", new ModelCapabilities(false, 128_000));
+        KNOWN.put("gpt-4o-mini", new ModelCapabilities(false, 128_000));
+        KNOWN.put("gpt-4.1", new ModelCapabilities(false, 1_047_576));
+        KNOWN.put("o1", new ModelCapabilities(true, 200_000));
+        KNOWN.put("o1-mini", new ModelCapabilities(true, 128_000));
+        KNOWN.put("o1-preview", new ModelCapabilities(true, 128_000));
+        KNOWN.put("o3", new ModelCapabilities(true, 200_000));
+        KNOWN.put("o3-mini", new ModelCapabilities(true, 200_000));
+        KNOWN.put("o4-mini", new ModelCapabilities(true, 200_000));
+    }
+
+    private final boolean reasoning;
+    private final int contextTokens;
+
+    private ModelCapabilities(boolean reasoning, int contextTokens) {
+        this.reasoning = reasoning;
+        this.contextTokens = contextTokens;
+    }
+
+    public static ModelCapabilities of(String model) {
+        if (model == null) {
+            return DEFAULT;
+        }
+        String name = model.toLowerCase(Locale.ROOT);
+        name = name.substring(name.lastIndexOf('/') + 1);
+
+        // New o-series models and snapshots reject "system" and JSON mode like the known ones.
+        ModelCapabilities match = name.matches("o\\d.*") ? DEFAULT_REASONING : DEFAULT;
+        int matchLength = 0;
+        for (Map.Entry<String, ModelCapabilities> known : KNOWN.entrySet()) {
+            String prefix = known.getKey();
+            if (prefix.length() > matchLength && isPrefixOf(prefix, name)) {
+                match = known.getValue();
+                matchLength = prefix.length();
+            }
+        }
+        return match;
+    }
+
+    // "o1" covers "o1-2024-12-17" but not "o10".
+    private static boolean isPrefixOf(String prefix, String name) {
+        return name.startsWith(prefix)
+                && (name.length() == prefix.length() || !Character.isDigit(name.charAt(prefix.length())));
+    }
+
+    public boolean isReasoning() {
+        return reasoning;
+    }
+
+    /** Role the instructions go in: "developer" for reasoning models, "system" otherwise. */
+    public String systemRole() {
+        return reasoning ? "developer" : "system";
+    }
+
+    /** Whether {@code response_format: json_object} is accepted. */
+    public boolean supportsJsonMode() {
+        return !reasoning;
+    }
+
+    public int contextTokens() {
+        return contextTokens;
+    }
+}
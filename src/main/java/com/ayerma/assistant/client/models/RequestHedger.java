@@ -0,0 +1,204 @@
+package com.ayerma.assistant.client.models;
+
+import com.ayerma.assistant.Env;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cuts tail latency by sending a second copy of a slow request. When the
+ * first attempt has not answered within a percentile of recent latencies, a
+ * hedge is sent; the first successful answer wins and the other attempt is
+ * cancelled. A failed attempt does not end the race while the other one is
+ * still running.
+ *
+ * Hedges are capped at a share of all requests (plus one), so a slow
+ * endpoint cannot double the load on itself. One hedger is kept per endpoint
+ * and model, so latency samples and counts are shared by every client of the
+ * process.
+ *
+ * Configuration:
+ * - MODELS_HEDGE: enable hedging (default false)
+ * - MODELS_HEDGE_PERCENTILE: latency percentile after which to hedge (default 95)
+ * - MODELS_HEDGE_INITIAL_DELAY_SECONDS: delay until enough latencies are known (default 30)
+ * - MODELS_HEDGE_BUDGET_PERCENT: most hedges as a share of requests (default 10)
+ */
+public final class RequestHedger {
+    private static final Map<String, RequestHedger> BY_KEY = new ConcurrentHashMap<>();
+
+    // Latencies of the most recent successful requests.
+    private static final int WINDOW = 100;
+    private static final int MIN_SAMPLES = 10;
+
+    private final String name;
+    private final double percentile;
+    private final long initialDelayMillis;
+    private final double budget;
+
+    private final long[] samples = new long[WINDOW];
+    private int sampleCount;
+    private int nextSample;
+    private long requests;
+    private long hedges;
+    private long hedgeWins;
+
+    RequestHedger(String name, double percentile, Duration initialDelay, double budget) {
+        this.name = name;
+        this.percentile = percentile;
+        this.initialDelayMillis = initialDelay.toMillis();
+        this.budget = budget;
+    }
+
+    /** The hedger for {@code key}, or null when MODELS_HEDGE is off. */
+    public static RequestHedger fromEnv(String key) {
+        if (!Env.optional("MODELS_HEDGE", "false").equalsIgnoreCase("true")) {
+            return null;
+        }
+        return BY_KEY.computeIfAbsent(key, k -> {
+            double percentile = Double.parseDouble(Env.optional("MODELS_HEDGE_PERCENTILE", "95"));
+            Duration initialDelay = Duration.ofSeconds(
+                    Long.parseLong(Env.optional("MODELS_HEDGE_INITIAL_DELAY_SECONDS", "30")));
+            double budget = Double.parseDouble(Env.optional("MODELS_HEDGE_BUDGET_PERCENT", "10")) / 100.0;
+            System.out.println("[DEBUG] Request hedging for " + k + " after p" + percentile + " latency, at most "
+                    + Math.round(budget * 100) + "% of requests");
+            return new RequestHedger(k, percentile, initialDelay, budget);
+        });
+    }
+
+    /**
+     * Runs {@code primary} and, if it is still pending after {@link #delay()}
+     * and the budget allows, {@code hedge} alongside it.
+     */
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> primary, Supplier<CompletableFuture<T>> hedge) {
+        synchronized (this) {
+            requests++;
+        }
+        Race<T> race = new Race<>();
+        race.start(primary);
+        long delayMillis = delay().toMillis();
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!race.result.isDone() && tryAcquireHedge()) {
+                System.out.println("[INFO] No response from " + name + " after " + delayMillis
+                        + " ms - sending hedged request");
+                race.hedge(hedge);
+            }
+        });
+        return race.result;
+    }
+
+    /** Current hedge delay: the configured percentile of recent latencies. */
+    public synchronized Duration delay() {
+        if (sampleCount < MIN_SAMPLES) {
+            return Duration.ofMillis(initialDelayMillis);
+        }
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return Duration.ofMillis(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+
+    /** Share of requests that were hedged. */
+    public synchronized double hedgeRate() {
+        return requests == 0 ? 0 : (double) hedges / requests;
+    }
+
+    /** Share of hedges that answered before the original request. */
+    public synchronized double winRate() {
+        return hedges == 0 ? 0 : (double) hedgeWins / hedges;
+    }
+
+    private synchronized boolean tryAcquireHedge() {
+        // One hedge is always allowed so a first slow request can be rescued.
+        if (hedges >= 1 + requests * budget) {
+            System.out.println("[DEBUG] Hedge budget for " + name + " exhausted (" + hedges + " of " + requests
+                    + " requests hedged)");
+            return false;
+        }
+        hedges++;
+        return true;
+    }
+
+    private synchronized void recordLatency(long millis) {
+        samples[nextSample] = millis;
+        nextSample = (nextSample + 1) % WINDOW;
+        sampleCount = Math.min(sampleCount + 1, WINDOW);
+    }
+
+    private synchronized String recordHedgeOutcome(boolean hedgeWon) {
+        if (hedgeWon) {
+            hedgeWins++;
+        }
+        return String.format("hedged %d of %d requests (%.0f%%), hedge won %d (%.0f%%)", hedges, requests,
+                hedgeRate() * 100, hedgeWins, winRate() * 100);
+    }
+
+    /** One primary attempt and at most one hedge, racing for {@link #result}. */
+    private final class Race<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long startedAt = System.nanoTime();
+        private CompletableFuture<T> primary;
+        private CompletableFuture<T> hedge;
+        private int pending;
+        private Throwable failure;
+
+        private synchronized void start(Supplier<CompletableFuture<T>> call) {
+            pending = 1;
+            primary = call.get();
+            primary.whenComplete((value, error) -> finish(false, value, error));
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    cancelAll();
+                }
+            });
+        }
+
+        private synchronized void hedge(Supplier<CompletableFuture<T>> call) {
+            if (result.isDone()) {
+                return;
+            }
+            pending++;
+            hedge = call.get();
+            hedge.whenComplete((value, error) -> finish(true, value, error));
+        }
+
+        private synchronized void finish(boolean fromHedge, T value, Throwable error) {
+            pending--;
+            if (result.isDone()) {
+                return;
+            }
+            if (error != null) {
+                // Report the original request's failure when both fail.
+                if (failure == null || !fromHedge) {
+                    failure = error;
+                }
+                if (pending == 0) {
+                    result.completeExceptionally(failure);
+                }
+                return;
+            }
+
+            // When the hedge wins, the original took at least this long; count it as such.
+            recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            if (hedge != null) {
+                System.out.println("[INFO] " + (fromHedge ? "Hedged" : "Original") + " request to " + name
+                        + " answered first; " + recordHedgeOutcome(fromHedge));
+            }
+            result.complete(value);
+            if (hedge != null) {
+                (fromHedge ? primary : hedge).cancel(true);
+            }
+        }
+
+        private synchronized void cancelAll() {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ayerma.assistant.client.routing;
+
+import com.ayerma.assistant.HttpJson;
+
+import java.io.IOException;
+
+/**
+ * Kind of work a runner asks the model for, used to pick a model and to
+ * decide whether an answer is usable.
+ */
+public enum ModelTask {
+    /** Generating a question list: small prompt, JSON answer; a fast model is enough. */
+    QUESTIONS(true, true),
+    /** Answering single questions in plain text (or a JSON batch of answers). */
+    ANSWERS(true, false),
+    /** Implementation plans, breakdowns and troubleshooting: JSON answer from the strongest model. */
+    PLAN(false, true);
+
+    private final boolean light;
+    private final boolean jsonOutput;
+
+    ModelTask(boolean light, boolean jsonOutput) {
+        this.light = light;
+        this.jsonOutput = jsonOutput;
+    }
+
+    /** Whether MODELS_FAST_MODEL may serve this task when the prompt is small. */
+    public boolean isLight() {
+        return light;
+    }
+
+    /** Whether an answer that is not JSON counts as a failure worth falling back on. */
+    public boolean expectsJson() {
+        return jsonOutput;
+    }
+
+    /**
+     * Whether the answer is usable for this task: not blank and, where JSON
+     * is expected, containing a JSON object. Bare JSON, fenced JSON and JSON
+     * with surrounding prose are accepted, like the runners' parsers do.
+     */
+    public boolean accepts(String output) {
+        if (output == null || output.isBlank()) {
+            return false;
+        }
+        if (!jsonOutput) {
+            return true;
+        }
+        int start = output.indexOf('{');
+        int end = output.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            return false;
+        }
+        try {
+            HttpJson.MAPPER.readTree(output.substring(start, end + 1));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.ayerma.assistant.client.routing;
+
+import com.ayerma.assistant.Env;
+import com.ayerma.assistant.HttpJson;
+import com.ayerma.assistant.HttpStatusException;
+import com.ayerma.assistant.TokenEstimator;
+import com.ayerma.assistant.client.BaAssistantClient;
+import com.ayerma.assistant.client.models.ModelCapabilities;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Sends each call to the first suitable model of a chain and moves down the
+ * chain when a model times out, is throttled (429) or unavailable (5xx), or
+ * returns something that is not JSON where JSON was asked for.
+ *
+ * The chain is the configured model followed by MODELS_FALLBACK_MODELS.
+ * Light tasks (see {@link ModelTask}) with a small prompt try
+ * MODELS_FAST_MODEL first. Models whose context window cannot hold the
+ * prompt are skipped. The last model's answer is returned even if it is not
+ * valid JSON, and the last model is given as long as its client allows, so
+ * callers see the same output they would without routing.
+ */
+public final class RoutingBaAssistantClient implements BaAssistantClient {
+    private final ModelTask task;
+    private final List<Route> chain;
+    private final Route fast;
+    private final int fastMaxPromptTokens;
+    private final int reservedOutputTokens;
+    private final long attemptTimeoutMillis;
+
+    public RoutingBaAssistantClient(ModelTask task, List<Route> chain, Route fast, int fastMaxPromptTokens,
+            int reservedOutputTokens, Duration attemptTimeout) {
+        if (chain.isEmpty()) {
+            throw new IllegalArgumentException("Model chain is empty");
+        }
+        this.task = task;
+        this.chain = List.copyOf(chain);
+        this.fast = fast;
+        this.fastMaxPromptTokens = fastMaxPromptTokens;
+        this.reservedOutputTokens = reservedOutputTokens;
+        this.attemptTimeoutMillis = attemptTimeout.toMillis();
+    }
+
+    /**
+     * Routes between models when MODELS_FALLBACK_MODELS or MODELS_FAST_MODEL is
+     * set; otherwise returns the client for {@code model} unchanged.
+     *
+     * - MODELS_FALLBACK_MODELS: comma-separated models to try after {@code model}
+     * - MODELS_FAST_MODEL: model tried first for light tasks with small prompts
+     * - MODELS_FAST_MAX_PROMPT_TOKENS: largest prompt sent to the fast model (default 8000)
+     * - MODELS_ATTEMPT_TIMEOUT_SECONDS: time a model gets before the next one is tried (default 120);
+     *   the last model of the chain is not timed out
+     *
+     * @param clientForModel creates the (possibly cached) client for one model
+     */
+    public static BaAssistantClient routeIfEnabled(ModelTask task, String model,
+            Function<String, BaAssistantClient> clientForModel) {
+        List<String> names = new ArrayList<>();
+        names.add(model);
+        for (String fallback : Env.optional("MODELS_FALLBACK_MODELS", "").split(",")) {
+            if (!fallback.isBlank() && !names.contains(fallback.trim())) {
+                names.add(fallback.trim());
+            }
+        }
+        String fastModel = Env.optional("MODELS_FAST_MODEL", null);
+        if (fastModel != null && fastModel.isBlank()) {
+            fastModel = null;
+        }
+        if (names.size() == 1 && fastModel == null) {
+            return clientForModel.apply(model);
+        }
+
+        List<Route> chain = new ArrayList<>();
+        for (String name : names) {
+            chain.add(new Route(name, clientForModel.apply(name)));
+        }
+        Route fast = fastModel != null ? new Route(fastModel, clientForModel.apply(fastModel)) : null;
+        int fastMaxPromptTokens = Integer.parseInt(Env.optional("MODELS_FAST_MAX_PROMPT_TOKENS", "8000"));
+        int reservedOutputTokens = Integer.parseInt(Env.optional("PROMPT_RESERVED_OUTPUT_TOKENS", "4096"));
+        Duration attemptTimeout = Duration.ofSeconds(
+                Long.parseLong(Env.optional("MODELS_ATTEMPT_TIMEOUT_SECONDS", "120")));
+
+        System.out.println("[DEBUG] Model routing for " + task + ": " + String.join(" -> ", names)
+                + (fast != null && task.isLight() ? " (fast: " + fastModel + ")" : ""));
+        return new RoutingBaAssistantClient(task, chain, fast, fastMaxPromptTokens, reservedOutputTokens,
+                attemptTimeout);
+    }
+
+    @Override
+    public String runBaAssistant(String systemPrompt, String userPrompt) throws IOException, InterruptedException {
+        return HttpJson.await(runBaAssistantAsync(systemPrompt, userPrompt));
+    }
+
+    @Override
+    public CompletableFuture<String> runBaAssistantAsync(String systemPrompt, String userPrompt) {
+        int promptTokens = TokenEstimator.estimate(systemPrompt) + TokenEstimator.estimate(userPrompt);
+        List<Route> plan = plan(promptTokens);
+        System.out.println("[INFO] Routing ~" + promptTokens + " prompt tokens to " + plan.get(0).model);
+        // The model call in flight, so cancelling the result reaches it whichever attempt it is.
+        AtomicReference<CompletableFuture<String>> current = new AtomicReference<>();
+        CompletableFuture<String> result = attempt(plan, 0, systemPrompt, userPrompt, current);
+        result.whenComplete((output, failure) -> {
+            if (result.isCancelled()) {
+                current.get().cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private List<Route> plan(int promptTokens) {
+        List<Route> candidates = new ArrayList<>();
+        if (fast != null && task.isLight() && promptTokens <= fastMaxPromptTokens) {
+            candidates.add(fast);
+        }
+        for (Route route : chain) {
+            if (candidates.isEmpty() || !candidates.get(0).model.equals(route.model)) {
+                candidates.add(route);
+            }
+        }
+
+        List<Route> fitting = new ArrayList<>();
+        for (Route route : candidates) {
+            if (route.contextTokens >= promptTokens + reservedOutputTokens) {
+                fitting.add(route);
+            } else {
+                System.out.println("[DEBUG] Skipping " + route.model + ": ~" + promptTokens
+                        + " prompt tokens exceed its context of " + route.contextTokens);
+            }
+        }
+        if (fitting.isEmpty()) {
+            System.out.println("[WARN] No model's context fits ~" + promptTokens + " prompt tokens; trying all");
+            return Collections.unmodifiableList(candidates);
+        }
+        return Collections.unmodifiableList(fitting);
+    }
+
+    private CompletableFuture<String> attempt(List<Route> plan, int index, String systemPrompt, String userPrompt,
+            AtomicReference<CompletableFuture<String>> current) {
+        Route route = plan.get(index);
+        CompletableFuture<String> call = route.client.runBaAssistantAsync(systemPrompt, userPrompt);
+        current.set(call);
+        boolean last = index + 1 >= plan.size();
+        // The last model has nothing to fall back to, so it gets as long as its client allows.
+        // Otherwise the timeout goes on a copy, and the call itself is cancelled below.
+        CompletableFuture<String> watched = last ? call
+                : call.copy().orTimeout(attemptTimeoutMillis, TimeUnit.MILLISECONDS);
+        return watched.handle((output, failure) -> {
+            Throwable cause = unwrap(failure);
+            if (cause instanceof TimeoutException) {
+                // Abort the request, not only the copy that timed out.
+                call.cancel(true);
+            }
+            String reason = cause != null ? fallbackReason(cause)
+                    : task.expectsJson() && !task.accepts(output) ? "returned invalid JSON" : null;
+            if (reason == null || last) {
+                if (reason != null) {
+                    System.out.println("[WARN] Model " + route.model + " " + reason + " and no fallback is left");
+                }
+                return cause != null ? CompletableFuture.<String>failedFuture(cause)
+                        : CompletableFuture.completedFuture(output);
+            }
+            System.out.println("[WARN] Model " + route.model + " " + reason + " - falling back to "
+                    + plan.get(index + 1).model);
+            return attempt(plan, index + 1, systemPrompt, userPrompt, current);
+        }).thenCompose(next -> next);
+    }
+
+    private String fallbackReason(Throwable cause) {
+        if (cause instanceof TimeoutException) {
+            return "timed out after " + attemptTimeoutMillis / 1000 + "s";
+        }
+        if (cause instanceof HttpTimeoutException) {
+            // The request timeout, once the client's own retries are used up.
+            return "timed out";
+        }
+        if (cause instanceof HttpStatusException) {
+            int status = ((HttpStatusException) cause).statusCode();
+            if (status == 429) {
+                return "was throttled (HTTP 429)";
+            }
+            if (status >= 500) {
+                return "is unavailable (HTTP " + status + ")";
+            }
+        }
+        return null;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof UncheckedIOException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /** One model of the chain and the client that calls it. */
+    public static final class Route {
+        private final String model;
+        private final BaAssistantClient client;
+        private final int contextTokens;
+
+        public Route(String model, BaAssistantClient client) {
+            this.model = model;
+            this.client = client;
+            this.contextTokens = ModelCapabilities.of(model).contextTokens();
+        }
+
+        public String model() {
+            return model;
+        }
+    }
+}